@@ -0,0 +1,180 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.pbihler.notificationcenter.benchmarks.Center;
+
+// }}}
+
+/**
+ * Implements the {@link Center} of the benchmarks with a
+ * {@link DefaultNotificationCenter} or a {@link RingBufferNotificationCenter}.
+ */
+public class BenchmarkCenter
+        implements Center
+{
+    final WeakNotificationCenter center;
+    final Blackhole blackhole;
+
+    // {{{ constructor
+
+    public BenchmarkCenter(final String type, final Blackhole blackhole)
+    {
+        if (RING_BUFFER.equals(type)) {
+            this.center = new RingBufferNotificationCenter();
+        } else if (DEFAULT.equals(type)) {
+            this.center = new DefaultNotificationCenter();
+        } else {
+            throw new IllegalArgumentException("Unknown center type: " + type);
+        }
+        this.blackhole = blackhole;
+    }
+
+    // }}}
+    // {{{ newObserver()
+
+    @Override
+    public Object newObserver()
+    {
+        return new Observer() {
+            @Override
+            public void receivedNotification(final Notification notification)
+            {
+                blackhole.consume(notification);
+            }
+        };
+    }
+
+    // }}}
+    // {{{ newObserver(long)
+
+    @Override
+    public Object newObserver(final long work)
+    {
+        return new Observer() {
+            @Override
+            public void receivedNotification(final Notification notification)
+            {
+                Blackhole.consumeCPU(work);
+                blackhole.consume(notification);
+            }
+        };
+    }
+
+    // }}}
+    // {{{ addObserver
+
+    @Override
+    public Object addObserver(final Object observer, final String notificationName,
+                              final Object notificationSender)
+    {
+        return center.addObserver((Observer) observer, notificationName, notificationSender);
+    }
+
+    // }}}
+    // {{{ addWeakObserver
+
+    @Override
+    public Object addWeakObserver(final Object observer, final String notificationName,
+                                  final Object notificationSender)
+    {
+        return center.addWeakObserver((Observer) observer, notificationName, notificationSender);
+    }
+
+    // }}}
+    // {{{ cancel
+
+    @Override
+    public void cancel(final Object subscription)
+    {
+        ((Subscription) subscription).cancel();
+    }
+
+    // }}}
+    // {{{ removeObserver
+
+    @Override
+    public void removeObserver(final Object observer, final String notificationName,
+                               final Object notificationSender)
+    {
+        center.removeObserver((Observer) observer, notificationName, notificationSender);
+    }
+
+    // }}}
+    // {{{ postNotification(String,Object)
+
+    @Override
+    public void postNotification(final String notificationName, final Object notificationSender)
+    {
+        center.postNotification(notificationName, notificationSender);
+    }
+
+    // }}}
+    // {{{ postNotification(String,Object,String,Object)
+
+    @Override
+    public void postNotification(final String notificationName, final Object notificationSender,
+                                 final String key, final Object value)
+    {
+        center.postNotification(notificationName, notificationSender,
+                                DefaultNotificationCenter.createUserInfo(key, value));
+    }
+
+    // }}}
+    // {{{ awaitIdle
+
+    @Override
+    public void awaitIdle()
+    {
+        if (center instanceof RingBufferNotificationCenter) {
+            final RingBufferNotificationCenter ringBuffer = (RingBufferNotificationCenter) center;
+            while (ringBuffer.getPendingCount() > 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    // }}}
+    // {{{ shutdown
+
+    @Override
+    public void shutdown() throws InterruptedException
+    {
+        if (center instanceof RingBufferNotificationCenter) {
+            final RingBufferNotificationCenter ringBuffer = (RingBufferNotificationCenter) center;
+            ringBuffer.shutdown();
+            ringBuffer.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    // }}}
+
+}
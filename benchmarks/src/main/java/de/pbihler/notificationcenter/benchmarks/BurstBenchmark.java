@@ -0,0 +1,117 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+package de.pbihler.notificationcenter.benchmarks;
+
+// {{{ imports
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// }}}
+
+/**
+ * The cost of a post for the posting thread, in bursts which fit into the
+ * ring buffer, with an observer doing some work. A
+ * {@code DefaultNotificationCenter} calls the observer on the posting thread,
+ * a {@code RingBufferNotificationCenter} on its consumer thread. Between the
+ * bursts, the consumer catches up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class BurstBenchmark
+{
+    static final int BURST = 1000;
+
+    @Param({ Center.DEFAULT, Center.RING_BUFFER })
+    String type;
+
+    @Param({ "0", "100" })
+    long observerWork;
+
+    Center center;
+
+    // {{{ setUp
+
+    @Setup
+    public void setUp(final Blackhole blackhole)
+    {
+        center = Center.Factory.create(type, blackhole);
+        center.addObserver(center.newObserver(observerWork), "Event", null);
+    }
+
+    // }}}
+    // {{{ tearDown
+
+    @TearDown
+    public void tearDown() throws InterruptedException
+    {
+        center.shutdown();
+    }
+
+    // }}}
+    // {{{ awaitIdle
+
+    @Setup(Level.Invocation)
+    public void awaitIdle()
+    {
+        center.awaitIdle();
+    }
+
+    // }}}
+    // {{{ postBurst
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void postBurst()
+    {
+        for (int i = 0; i < BURST; i++) {
+            center.postNotification("Event", this);
+        }
+    }
+
+    // }}}
+
+}
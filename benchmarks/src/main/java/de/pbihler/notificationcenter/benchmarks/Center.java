@@ -0,0 +1,131 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+package de.pbihler.notificationcenter.benchmarks;
+
+// {{{ imports
+
+import org.openjdk.jmh.infra.Blackhole;
+
+// }}}
+
+/**
+ * The operations of a notification center the benchmarks measure.
+ * <p>
+ * The center lives in the default package, which JMH does not accept for
+ * benchmarks and which cannot be imported from a named package. So the
+ * benchmarks reach it through this interface, implemented by the single class
+ * {@code BenchmarkCenter} in the default package, which the JIT inlines.
+ * Observers and subscriptions are passed around as plain objects.
+ */
+public interface Center
+{
+    /** the type of a {@code DefaultNotificationCenter} */
+    public static final String DEFAULT = "default";
+
+    /** the type of a {@code RingBufferNotificationCenter} */
+    public static final String RING_BUFFER = "ringBuffer";
+
+    /**
+     * @return A new observer handing the received notifications to the
+     *         blackhole of the center.
+     */
+    public abstract Object newObserver();
+
+    /**
+     * @return A new observer like {@link #newObserver()}, which first burns
+     *         the given amount of CPU, see {@link Blackhole#consumeCPU(long)}.
+     */
+    public abstract Object newObserver(final long work);
+
+    /**
+     * @return The subscription of the observer.
+     */
+    public abstract Object addObserver(final Object observer, final String notificationName,
+                                       final Object notificationSender);
+
+    /**
+     * @return The subscription of the weakly referenced observer.
+     */
+    public abstract Object addWeakObserver(final Object observer, final String notificationName,
+                                           final Object notificationSender);
+
+    public abstract void cancel(final Object subscription);
+
+    public abstract void removeObserver(final Object observer, final String notificationName,
+                                        final Object notificationSender);
+
+    public abstract void postNotification(final String notificationName, final Object notificationSender);
+
+    /**
+     * Posts a notification with a userInfo holding the single given entry.
+     */
+    public abstract void postNotification(final String notificationName, final Object notificationSender,
+                                          final String key, final Object value);
+
+    /**
+     * Waits until the center has handed all posted notifications to the
+     * observers, if it delivers them asynchronously.
+     */
+    public abstract void awaitIdle();
+
+    /**
+     * Stops the threads of the center, if it has any.
+     */
+    public abstract void shutdown() throws InterruptedException;
+
+    /* ***************************************************************************
+     * Internal Helper Classes
+     * **************************************************************************
+     */
+
+    // {{{ class Factory
+
+    public static final class Factory
+    {
+        private Factory()
+        {
+        }
+
+        /**
+         * Creates a center of the given type, delivering to observers which
+         * consume into the blackhole.
+         */
+        public static Center create(final String type, final Blackhole blackhole)
+        {
+            try {
+                return (Center) Class.forName("BenchmarkCenter")
+                        .getConstructor(String.class, Blackhole.class)
+                        .newInstance(type, blackhole);
+            } catch (final ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create a center of type " + type, e);
+            }
+        }
+    }
+
+    // }}}
+
+}
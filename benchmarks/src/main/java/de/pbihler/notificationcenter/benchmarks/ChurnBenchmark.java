@@ -0,0 +1,109 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+package de.pbihler.notificationcenter.benchmarks;
+
+// {{{ imports
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// }}}
+
+/**
+ * Adding and removing an observer next to the given number of observers
+ * already registered for the same name.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ChurnBenchmark
+{
+    @Param({ "0", "10", "1000" })
+    int registered;
+
+    Center center;
+    Object observer;
+
+    // {{{ setUp
+
+    @Setup
+    public void setUp(final Blackhole blackhole)
+    {
+        center = Center.Factory.create(Center.DEFAULT, blackhole);
+        for (int i = 0; i < registered; i++) {
+            center.addObserver(center.newObserver(), "Event", null);
+        }
+        observer = center.newObserver();
+    }
+
+    // }}}
+    // {{{ tearDown
+
+    @TearDown
+    public void tearDown() throws InterruptedException
+    {
+        center.shutdown();
+    }
+
+    // }}}
+    // {{{ addAndCancel
+
+    @Benchmark
+    public void addAndCancel()
+    {
+        center.cancel(center.addObserver(observer, "Event", null));
+    }
+
+    // }}}
+    // {{{ addAndRemove
+
+    @Benchmark
+    public void addAndRemove()
+    {
+        center.addObserver(observer, "Event", null);
+        center.removeObserver(observer, "Event", null);
+    }
+
+    // }}}
+
+}
@@ -0,0 +1,97 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * A {@link WeakNotificationCenter} that can hand the dispatch of a
+ * notification to another thread, so that the posting thread is not blocked
+ * by slow observers.
+ * <p>
+ * Observers receive asynchronously posted notifications with the same
+ * criteria (notification name, sender, weak and strong registration) as
+ * synchronously posted ones.
+ *
+ */
+public interface AsyncNotificationCenter
+        extends WeakNotificationCenter
+{
+    /**
+     * Sends a given notification to the receiver without waiting for the
+     * observers to be called.
+     *
+     * @param notification
+     *            The notification to post. It's userInfo must not be changed
+     *            after posting.
+     * @return A future which is completed with the given notification as soon
+     *         as all observers have been called. If an observer throws an
+     *         exception, the future completes exceptionally.
+     */
+    @NonNull
+    public abstract Future<Notification> postNotificationAsync(@NonNull final Notification notification);
+
+    /**
+     * Creates a new notification and sends it to the receiver without waiting
+     * for the observers to be called.
+     *
+     * @param notificationName
+     *            The name of the notification.
+     * @param notificationSender
+     *            The object posting the notification.
+     * @return see {@link #postNotificationAsync(Notification)}
+     */
+    @NonNull
+    public abstract Future<Notification> postNotificationAsync(@NonNull final String notificationName,
+                                                               @Nullable final Object notificationSender);
+
+    /**
+     * Creates a new notification and sends it to the receiver without waiting
+     * for the observers to be called.
+     *
+     * @param notificationName
+     *            The name of the notification.
+     * @param notificationSender
+     *            The object posting the notification.
+     * @param userInfo
+     *            Information about the the notification. May be null. Must not
+     *            be changed after posting.
+     * @return see {@link #postNotificationAsync(Notification)}
+     */
+    @NonNull
+    public abstract Future<Notification> postNotificationAsync(@NonNull final String notificationName,
+                                                               @Nullable final Object notificationSender,
+                                                               @Nullable final Map<String, Object> userInfo);
+
+}
@@ -0,0 +1,150 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * Hands tasks over to an executor in batches: while a batch task is submitted
+ * or running, further tasks are just queued and run by it. So the deliveries
+ * to all observers bound to the same executor cost a single submission, and
+ * run in the order they were posted.
+ * <p>
+ * A batch task runs at most {@value #BATCH_SIZE} tasks, then submits itself
+ * again, so event loops can process other work in between.
+ *
+ */
+final class BatchingExecutor
+        implements Executor, Runnable
+{
+
+    // {{{ constants
+
+    static final int BATCH_SIZE = 256;
+
+    // }}}
+    // {{{ variables
+
+    @Getter @NonNull private final Executor executor;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    // whether a batch task is submitted or running
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    // }}}
+    // {{{ constructor
+
+    BatchingExecutor(@NonNull final Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    // }}}
+    // {{{ execute
+
+    @Override
+    public void execute(@NonNull final Runnable task)
+    {
+        this.tasks.add(task);
+        if (this.scheduled.compareAndSet(false, true)) {
+            submit();
+        }
+    }
+
+    // }}}
+    // {{{ run
+
+    /**
+     * Runs a batch of the queued tasks. Failures of the tasks are reported to
+     * the uncaught exception handler of the thread.
+     */
+    @Override
+    public void run()
+    {
+        boolean idle = false;
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                final Runnable task = this.tasks.poll();
+                if (task == null) {
+                    this.scheduled.set(false);
+                    // a task may have been queued before the flag was reset
+                    if (this.tasks.isEmpty() || !this.scheduled.compareAndSet(false, true)) {
+                        idle = true;
+                        return;
+                    }
+                    continue;
+                }
+                runTask(task);
+            }
+        } finally {
+            if (!idle) {
+                // the batch is full, or a failure escaped: the next batch runs the rest
+                submit();
+            }
+        }
+    }
+
+    // }}}
+    // {{{ runTask
+
+    private static void runTask(@NonNull final Runnable task)
+    {
+        try {
+            task.run();
+        } catch (final Throwable ex) {
+            // report it, but keep running the other tasks
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+        }
+    }
+
+    // }}}
+    // {{{ submit
+
+    private void submit()
+    {
+        try {
+            this.executor.execute(this);
+        } catch (final RuntimeException ex) {
+            // rejected, e.g. because the executor is shut down
+            this.scheduled.set(false);
+            throw ex;
+        }
+    }
+
+    // }}}
+
+}
@@ -0,0 +1,75 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+/**
+ * Defines which pending notifications of a {@link NotificationQueue} a new
+ * notification replaces.
+ *
+ */
+public enum Coalescing
+{
+    /**
+     * Never coalesce, every notification is posted.
+     */
+    NONE,
+
+    /**
+     * Coalesce notifications with the same name.
+     */
+    ON_NAME,
+
+    /**
+     * Coalesce notifications with the same sender (object).
+     */
+    ON_SENDER,
+
+    /**
+     * Coalesce notifications with the same name and the same sender. This is
+     * the default.
+     */
+    ON_NAME_AND_SENDER;
+
+    // {{{ matches
+
+    /**
+     * @return <code>true</code> if the given notifications coalesce
+     */
+    boolean matches(final Notification notification, final Notification other)
+    {
+        switch (this) {
+        case ON_NAME:
+            return notification.getName().equals(other.getName());
+        case ON_SENDER:
+            return notification.getObject() == other.getObject();
+        case ON_NAME_AND_SENDER:
+            return notification.getObject() == other.getObject() && notification.getName().equals(other.getName());
+        default:
+            return false;
+        }
+    }
+
+    // }}}
+}
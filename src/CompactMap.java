@@ -0,0 +1,292 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * An immutable map for the userInfo of notifications, which typically have
+ * very few entries.
+ * <p>
+ * Keys and values are stored in a single flat array, which is an open
+ * addressing hash table with linear probing, so a map of a few entries
+ * consists of just two objects. The table is at most half full, so lookups
+ * rarely probe more than one slot.
+ *
+ */
+final class CompactMap
+        extends AbstractMap<String, Object>
+{
+
+    // {{{ variables
+
+    static final CompactMap EMPTY = new CompactMap(new Object[0], 0);
+
+    // stands for the null key in the table, where null marks empty slots
+    private static final Object NULL_KEY = new Object();
+
+    /** keys at even and their values at odd indexes */
+    @NonNull private final Object[] table;
+    private final int size;
+
+    // }}}
+    // {{{ constructor
+
+    private CompactMap(@NonNull final Object[] table, final int size)
+    {
+        this.table = table;
+        this.size = size;
+    }
+
+    // }}}
+    // {{{ copyOf
+
+    /**
+     * @return An immutable copy of the given map, or the map itself if it is
+     *         a {@link CompactMap} already
+     */
+    @NonNull
+    static CompactMap copyOf(@NonNull final Map<String, ?> map)
+    {
+        if (map instanceof CompactMap) {
+            return (CompactMap) map;
+        }
+
+        final Builder builder = new Builder(map.size());
+        for (final Map.Entry<String, ?> entry : map.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    // }}}
+    // {{{ get
+
+    @Override
+    public Object get(@Nullable final Object key)
+    {
+        final int index = indexOf(key);
+        return index < 0 ? null : this.table[index + 1];
+    }
+
+    // }}}
+    // {{{ containsKey
+
+    @Override
+    public boolean containsKey(@Nullable final Object key)
+    {
+        return indexOf(key) >= 0;
+    }
+
+    // }}}
+    // {{{ size
+
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    // }}}
+    // {{{ entrySet
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return CompactMap.this.size;
+            }
+        };
+    }
+
+    // }}}
+    // {{{ indexOf
+
+    /**
+     * @return The index of the key in the table, or -1
+     */
+    private int indexOf(@Nullable final Object key)
+    {
+        if (this.size == 0) {
+            return -1;
+        }
+
+        final Object tableKey = key == null ? NULL_KEY : key;
+        final int mask = this.table.length - 2;
+        for (int index = slot(tableKey, mask);; index = (index + 2) & mask) {
+            final Object candidate = this.table[index];
+            if (candidate == null) {
+                return -1;
+            }
+            if (candidate == tableKey || candidate.equals(tableKey)) {
+                return index;
+            }
+        }
+    }
+
+    // }}}
+    // {{{ slot
+
+    /**
+     * @return The index of the first slot to probe for the given key
+     */
+    private static int slot(@NonNull final Object tableKey, final int mask)
+    {
+        final int hash = tableKey.hashCode();
+        return ((hash ^ (hash >>> 16)) << 1) & mask;
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Internal Helper Classes
+     * **************************************************************************
+     */
+
+    // {{{ Builder
+
+    /**
+     * Fills the table of a new map in place. It must not be used after
+     * {@link #build()}.
+     */
+    static final class Builder
+    {
+        @NonNull private final Object[] table;
+        private int size;
+
+        /**
+         * @param expectedSize
+         *            The maximum number of entries to put
+         */
+        Builder(final int expectedSize)
+        {
+            int slots = 2;
+            while (slots < expectedSize * 2) {
+                slots <<= 1;
+            }
+            this.table = new Object[slots * 2];
+        }
+
+        /**
+         * @return <code>false</code> if the key has already been put, the
+         *         value is not replaced then
+         */
+        boolean put(@Nullable final String key, @Nullable final Object value)
+        {
+            final Object tableKey = key == null ? NULL_KEY : key;
+            final int mask = this.table.length - 2;
+            for (int index = slot(tableKey, mask);; index = (index + 2) & mask) {
+                final Object candidate = this.table[index];
+                if (candidate == null) {
+                    if (this.size == this.table.length / 4) { // keep the table at most half full
+                        throw new IllegalStateException("More entries than expected");
+                    }
+                    this.table[index] = tableKey;
+                    this.table[index + 1] = value;
+                    this.size++;
+                    return true;
+                }
+                if (candidate.equals(tableKey)) {
+                    return false;
+                }
+            }
+        }
+
+        @NonNull
+        CompactMap build()
+        {
+            return this.size == 0 ? EMPTY : new CompactMap(this.table, this.size);
+        }
+    }
+
+    // }}}
+    // {{{ EntryIterator
+
+    private final class EntryIterator
+            implements Iterator<Map.Entry<String, Object>>
+    {
+        private int index = advance(0);
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.index < CompactMap.this.table.length;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next()
+        {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Object[] table = CompactMap.this.table;
+            final Object key = table[this.index];
+            final Map.Entry<String, Object> entry = new SimpleImmutableEntry<String, Object>(
+                    key == NULL_KEY ? null : (String) key, table[this.index + 1]);
+            this.index = advance(this.index + 2);
+            return entry;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        private int advance(int index)
+        {
+            final Object[] table = CompactMap.this.table;
+            while (index < table.length && table[index] == null) {
+                index += 2;
+            }
+            return index;
+        }
+    }
+
+    // }}}
+
+}
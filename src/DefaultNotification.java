@@ -26,7 +26,6 @@
 
 // {{{ imports
 
-import java.util.Collections;
 import java.util.Map;
 
 import javax.annotation.Nullable;
@@ -43,9 +42,11 @@ import lombok.ToString;
  * A default implementation for {@link Notification}s, assuring that the given
  * userInfo cannot be
  * modified by the receivers of the notification.
+ * <p>
+ * The userInfo is copied into a compact immutable map, unless it was created by
+ * {@link DefaultNotificationCenter#createUserInfo(Object...)} already.
  *
  */
-@Builder
 @ToString
 public class DefaultNotification
         implements Notification
@@ -60,15 +61,16 @@ public class DefaultNotification
     // }}}
     // {{{ constructor
 
+    @Builder
     public DefaultNotification(@NonNull final String name, @Nullable final Object object,
                                @Nullable final Map<String, Object> userInfo)
     {
         this.name = name;
         this.object = object;
         if (userInfo == null) {
-            this.userInfo = Collections.emptyMap();
+            this.userInfo = CompactMap.EMPTY;
         } else {
-            this.userInfo = Collections.unmodifiableMap(userInfo);
+            this.userInfo = CompactMap.copyOf(userInfo);
         }
     }
 
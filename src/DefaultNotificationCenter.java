@@ -26,41 +26,92 @@
 
 // {{{ imports
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.Queue;
+import java.util.Set;
+import java.util.Vector;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.annotation.Nullable;
 
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 
 // }}}
 
 /**
- * A concrete implementation of the {@link WeakNotificationCenter}.
+ * A concrete implementation of the {@link WeakNotificationCenter}, which can
+ * also dispatch notifications asynchronously (see
+ * {@link AsyncNotificationCenter}).
+ * <p>
+ * The observers of a notification are called by descending priority (see
+ * {@link ObserverOptions#getPriority()}), and observers of the same priority
+ * in the order they were registered, no matter if they were registered for the
+ * name of the notification or for any name. The lists are kept sorted when
+ * registering, so dispatching just walks them.
+ * <p>
+ * Observers can be registered for a pattern of hierarchical names, like
+ * <code>orders.*.filled</code> or <code>orders.#</code> (see
+ * {@link NotificationName}). The patterns matching a posted name are looked
+ * up once and cached until patterns are added or removed.
  *
  */
 public class DefaultNotificationCenter
-        implements WeakNotificationCenter
+        implements AsyncNotificationCenter
 {
     // {{{ constants
 
-    // Reserved key, since concurrent Hash table does not allow null as key
-    private static final String ANY_NOTIFICATION_NAME = "###RESERVERD_KEY_FOR_ANY_NAME###".intern();
+    // the maximum number of collected references removed per operation
+    private static final int MAX_REAPED_REFERENCES = 64;
 
     // }}}
     // {{{ variables
 
     protected final static DefaultNotificationCenter instance = new DefaultNotificationCenter();
 
-    final ConcurrentHashMap<String, Queue<ObserverReference>> observers = new ConcurrentHashMap<String, Queue<ObserverReference>>();
+    final ObserverTable observers = new ObserverTable();
+
+    private final AtomicLong registrationCount = new AtomicLong();
+
+    // weak references to observers and senders are enqueued here when collected
+    private final ReferenceQueue<Object> collectedReferences = new ReferenceQueue<Object>();
+
+    @Nullable volatile Executor asyncExecutor;
+
+    // records the dispatch while metrics are enabled
+    @Nullable volatile DispatchMetrics metrics;
+
+    // watches the observer calls, if set
+    @Nullable volatile ObserverWatchdog watchdog;
+
+    // the batching executors by the executor of their observers
+    private final Map<Executor, WeakReference<BatchingExecutor>> batchingExecutors =
+            new WeakHashMap<Executor, WeakReference<BatchingExecutor>>();
 
     // }}}
 
@@ -87,18 +138,17 @@ public class DefaultNotificationCenter
      * arguments.
      *
      * @return A map build out of the given arguments, or {@code null} when
-     *         there were no arguments given.
+     *         there were no arguments given. The map cannot be modified.
      */
     public static Map<String, Object> createUserInfo(final Object... userInfo)
     {
-        final Map<String, Object> map = new HashMap<String, Object>();
+        final CompactMap.Builder map = new CompactMap.Builder((userInfo.length + 1) / 2);
         for (int i = 0; i < userInfo.length; i += 2) {
-            final String key = "" + userInfo[i];
+            final String key = userInfo[i] instanceof String ? (String) userInfo[i] : "" + userInfo[i];
             final Object value = i + 1 < userInfo.length ? userInfo[i + 1] : null;
-            if (map.containsKey(key)) throw new IllegalArgumentException("Duplicate key " + key + " in userInfo");
-            map.put(key, value);
+            if (!map.put(key, value)) throw new IllegalArgumentException("Duplicate key " + key + " in userInfo");
         }
-        return map;
+        return map.build();
     }
 
     // }}}
@@ -111,10 +161,41 @@ public class DefaultNotificationCenter
     // {{{ addObserver(Observer,String,Object)
 
     @Override
-    public void addObserver(@NonNull final Observer observer, @Nullable final String notificationName,
-                            @Nullable final Object notificationSender)
+    public Subscription addObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                                    @Nullable final Object notificationSender)
+    {
+        return addObserver(observer, notificationName, notificationSender, ObserverOptions.DEFAULT);
+    }
+
+    // }}}
+    // {{{ addObserver(Observer,String,Object,ObserverOptions)
+
+    /**
+     * Adds the given observer to the dispatch table, as
+     * {@link #addObserver(Observer, String, Object)}, using the given
+     * options for delivering the notifications.
+     */
+    public Subscription addObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                                    @Nullable final Object notificationSender,
+                                    @NonNull final ObserverOptions options)
+    {
+        return addObserverReference(new StrongObserverReference(observer, notificationSender, options,
+                this.registrationCount.incrementAndGet(), this), notificationName);
+    }
+
+    // }}}
+    // {{{ addObserver(Observer,String,Object,Executor)
+
+    /**
+     * Adds the given observer to the dispatch table, as
+     * {@link #addObserver(Observer, String, Object)}, to be called by the
+     * given executor, see {@link ObserverOptions#getExecutor()}.
+     */
+    public Subscription addObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                                    @Nullable final Object notificationSender, @NonNull final Executor executor)
     {
-        addObserverReference(new StrongObserverReference(observer, notificationSender), notificationName);
+        return addObserver(observer, notificationName, notificationSender,
+                ObserverOptions.builder().executor(executor).build());
     }
 
     // }}}
@@ -123,9 +204,9 @@ public class DefaultNotificationCenter
     /**
      * see {@link #addObserver(Observer, String, Object)}
      */
-    public void addObserver(@NonNull final Observer observer, @Nullable final String notificationName)
+    public Subscription addObserver(@NonNull final Observer observer, @Nullable final String notificationName)
     {
-        addObserver(observer, notificationName, null);
+        return addObserver(observer, notificationName, null);
     }
 
     // }}}
@@ -134,19 +215,50 @@ public class DefaultNotificationCenter
     /**
      * see {@link #addObserver(Observer, String, Object)}
      */
-    public void addObserver(@NonNull final Observer observer)
+    public Subscription addObserver(@NonNull final Observer observer)
     {
-        addObserver(observer, null);
+        return addObserver(observer, null);
     }
 
     // }}}
     // {{{ addWeakObserver(Observer,String,Object)
 
     @Override
-    public void addWeakObserver(@NonNull final Observer observer, @Nullable final String notificationName,
-                                @Nullable final Object notificationSender)
+    public Subscription addWeakObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                                        @Nullable final Object notificationSender)
+    {
+        return addWeakObserver(observer, notificationName, notificationSender, ObserverOptions.DEFAULT);
+    }
+
+    // }}}
+    // {{{ addWeakObserver(Observer,String,Object,ObserverOptions)
+
+    /**
+     * Adds the given observer to the dispatch table without retaining it, as
+     * {@link #addWeakObserver(Observer, String, Object)}, using the given
+     * options for delivering the notifications.
+     */
+    public Subscription addWeakObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                                        @Nullable final Object notificationSender,
+                                        @NonNull final ObserverOptions options)
+    {
+        return addObserverReference(new WeakObserverReference(observer, notificationSender, options,
+                this.registrationCount.incrementAndGet(), this), notificationName);
+    }
+
+    // }}}
+    // {{{ addWeakObserver(Observer,String,Object,Executor)
+
+    /**
+     * Adds the given observer to the dispatch table without retaining it, as
+     * {@link #addWeakObserver(Observer, String, Object)}, to be called by the
+     * given executor, see {@link ObserverOptions#getExecutor()}.
+     */
+    public Subscription addWeakObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                                        @Nullable final Object notificationSender, @NonNull final Executor executor)
     {
-        addObserverReference(new WeakObserverReference(observer, notificationSender), notificationName);
+        return addWeakObserver(observer, notificationName, notificationSender,
+                ObserverOptions.builder().executor(executor).build());
     }
 
     // }}}
@@ -155,9 +267,9 @@ public class DefaultNotificationCenter
     /**
      * see {@link #addWeakObserver(Observer, String, Object)}
      */
-    public void addWeakObserver(@NonNull final Observer observer, @Nullable final String notificationName)
+    public Subscription addWeakObserver(@NonNull final Observer observer, @Nullable final String notificationName)
     {
-        addWeakObserver(observer, notificationName, null);
+        return addWeakObserver(observer, notificationName, null);
     }
 
     // }}}
@@ -166,33 +278,66 @@ public class DefaultNotificationCenter
     /**
      * see {@link #addWeakObserver(Observer, String, Object)}
      */
-    public void addWeakObserver(@NonNull final Observer observer)
+    public Subscription addWeakObserver(@NonNull final Observer observer)
     {
-        addWeakObserver(observer, null);
+        return addWeakObserver(observer, null);
     }
 
     // }}}
     // {{{ addObserverReference
 
-    private void addObserverReference(@NonNull final ObserverReference observerReference,
-                                      @Nullable String notificationName)
+    @NonNull
+    private Subscription addObserverReference(@NonNull final ObserverReference observerReference,
+                                              @Nullable final String notificationName)
     {
+        reapCollectedReferences();
+
         if (notificationName == null) {
-            notificationName = ANY_NOTIFICATION_NAME;
+            observerReference.setList(this.observers.any);
+            this.observers.any.add(observerReference);
+        } else {
+            this.observers.add(NotificationName.of(notificationName), observerReference);
         }
-        assert notificationName != null;
+        this.observers.byObserver.add(observerReference);
+        return observerReference;
+    }
+
+    // }}}
+    // {{{ getBatchingExecutor
 
-        Queue<ObserverReference> observerSet = this.observers.get(notificationName);
-        if (observerSet == null) {
-            final Queue<ObserverReference> newObserverSet = new ConcurrentLinkedQueue<ObserverReference>();
-            observerSet = this.observers.putIfAbsent(notificationName, newObserverSet);
-            if (observerSet == null) {
-                observerSet = newObserverSet;
+    /**
+     * @return The batching executor shared by the observers bound to the
+     *         given executor
+     */
+    @NonNull
+    BatchingExecutor getBatchingExecutor(@NonNull final Executor executor)
+    {
+        synchronized (this.batchingExecutors) {
+            final WeakReference<BatchingExecutor> reference = this.batchingExecutors.get(executor);
+            BatchingExecutor batchingExecutor = reference != null ? reference.get() : null;
+            if (batchingExecutor == null) {
+                batchingExecutor = new BatchingExecutor(executor);
+                this.batchingExecutors.put(executor, new WeakReference<BatchingExecutor>(batchingExecutor));
             }
+            return batchingExecutor;
         }
-        assert observerSet != null;
+    }
+
+    // }}}
+    // {{{ getMailbox
 
-        observerSet.add(observerReference);
+    /**
+     * @return The mailbox of the given registration of this center, or
+     *         <code>null</code> if it has none
+     */
+    @Nullable
+    public Mailbox getMailbox(@NonNull final Subscription subscription)
+    {
+        if (subscription instanceof ObserverReference) {
+            final ObserverReference reference = (ObserverReference) subscription;
+            return reference.center == this ? reference.getMailbox() : null;
+        }
+        return null;
     }
 
     // }}}
@@ -208,13 +353,38 @@ public class DefaultNotificationCenter
     public void removeObserver(@NonNull final Observer observer, @Nullable final String notificationName,
                                @Nullable final Object notificationSender)
     {
+        reapCollectedReferences();
+
+        NotificationName name = null;
         if (notificationName != null) {
-            removeObserverWithName(observer, notificationName, notificationSender);
-        } else {
-            // iterate through all names...
-            for (final String name : this.observers.keySet()) {
-                removeObserverWithName(observer, name, notificationSender);
+            name = NotificationName.find(notificationName);
+            if (name == null) {
+                return; // the name was never observed
+            }
+        }
+
+        // only visit the registrations of this observer
+        for (final ObserverReference reference : this.observers.byObserver.find(observer)) {
+            final ObserverList observerList = reference.getList();
+            if (name != null && (observerList == null || observerList.getName() != name)) {
+                continue; // registered for another name
+            }
+
+            if (notificationSender != null) {
+                final WeakReference<Object> senderReference = reference.getSenderReference();
+                if (senderReference == null) {
+                    continue;
+                } else {
+                    final Object expectedSender = senderReference.get();
+                    if (expectedSender != null && notificationSender != expectedSender) {
+                        // this is not the expected sender...
+                        continue;
+                    }
+                }
             }
+
+            // its the one to remove...
+            removeReference(reference);
         }
     }
 
@@ -239,85 +409,160 @@ public class DefaultNotificationCenter
     }
 
     // }}}
-    // {{{ removeObserverWithName
+    // {{{ dropIfEmpty
 
-    private void removeObserverWithName(@NonNull final Observer observer, @NonNull final String notificationName,
-                                        @Nullable final Object notificationSender)
+    /**
+     * Removes the list from the dispatch table if it contains no more
+     * observers. Concurrent registrations for the name are not lost: they
+     * fail on the dropped list and retry with a new one.
+     */
+    private void dropIfEmpty(@NonNull final ObserverList observerList)
     {
+        if (observerList.getName() == null) {
+            return; // the list for any name is never dropped
+        }
+        if (observerList.isEmpty() && observerList.retireIfEmpty()) {
+            this.observers.drop(observerList);
+        }
+    }
+
+    // }}}
 
-        final Queue<ObserverReference> queue = this.observers.get(notificationName);
+    /* **************************************************************************
+     * Post Notification
+     * **************************************************************************
+     */
+
+    // {{{ postNotification(Notification)
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A {@link PooledNotification} is recycled after the dispatch.
+     */
+    @Override
+    public void postNotification(@NonNull final Notification notification)
+    {
+        post(findName(notification), notification);
+    }
 
-        if (queue != null) {
-            removeObserverFromQueue(queue, observer, notificationSender);
+    // }}}
+    // {{{ post
 
-            if (queue.isEmpty()) { // entries might be gone...
-                this.observers.remove(notificationName, queue); // cleanup
+    /**
+     * Sends the given notification, whose name has been looked up already
+     * with {@link #findName(Notification)}, e.g. by another thread. A
+     * {@link PooledNotification} is recycled after the dispatch.
+     */
+    void post(@Nullable final NotificationName notificationName, @NonNull final Notification notification)
+    {
+        if (notification instanceof PooledNotification) {
+            try {
+                dispatch(notificationName, notification);
+            } finally {
+                ((PooledNotification) notification).recycle();
             }
+            return;
         }
+
+        dispatch(notificationName, notification);
     }
 
     // }}}
-    // {{{ removeObserverFromQueue
+    // {{{ findName
 
-    private void removeObserverFromQueue(@NonNull final Queue<ObserverReference> queue,
-                                         @NonNull final Observer targetObserver,
-                                         @Nullable final Object notificationSender)
+    /**
+     * @return The interned name of the given notification, or
+     *         <code>null</code> if there is none
+     */
+    @Nullable
+    static NotificationName findName(@NonNull final Notification notification)
     {
-        final Iterator<ObserverReference> iterator = queue.iterator();
-        try {
-            ObserverReference reference;
-            while ((reference = iterator.next()) != null) {
-                final Observer observer = reference.get();
+        if (notification instanceof PooledNotification) {
+            return ((PooledNotification) notification).getNotificationName();
+        }
 
-                if (observer == null) {
-                    iterator.remove(); // reference is dead -> cleanup
-                    continue;
-                }
+        // names without an interned instance have never been observed
+        return NotificationName.find(notification.getName());
+    }
 
-                if (observer != targetObserver) {
-                    continue; // we don't look for this observer
-                }
+    // }}}
+    // {{{ postNotification(PrimitiveNotification)
 
-                if (notificationSender != null) {
-                    final WeakReference<Object> senderReference = reference.getSenderReference();
-                    if (senderReference == null) {
-                        continue;
-                    } else {
-                        final Object expectedSender = senderReference.get();
-                        if (expectedSender != null && notificationSender != expectedSender) {
-                            // this is not the expected sender...
-                            continue;
-                        }
-                    }
-                }
+    /**
+     * Sends the given notification to the receiver, as
+     * {@link #postNotification(Notification)}, without looking up its name.
+     */
+    public void postNotification(@NonNull final PrimitiveNotification notification)
+    {
+        dispatch(notification.getNotificationName(), notification);
+    }
 
-                // its the one to remove...
+    // }}}
+    // {{{ channel(String)
 
-                iterator.remove();
-            }
-        } catch (final NoSuchElementException ex) {
-            // end of iterator
-        }
+    /**
+     * see {@link #channel(NotificationName)}
+     */
+    @NonNull
+    public NotificationChannel channel(@NonNull final String notificationName)
+    {
+        return channel(NotificationName.of(notificationName));
+    }
+
+    // }}}
+    // {{{ channel(NotificationName)
 
+    /**
+     * Returns a handle for posting notifications with the given name. It keeps
+     * the resolved observers of the name, so posting through it skips the
+     * lookup in the dispatch table. Producers which always post the same
+     * notification should use it.
+     */
+    @NonNull
+    public NotificationChannel channel(@NonNull final NotificationName notificationName)
+    {
+        return new NotificationChannel(this, notificationName);
     }
 
     // }}}
+    // {{{ postNotification(NotificationName,Object,Map)
 
-    /* **************************************************************************
-     * Post Notification
-     * **************************************************************************
+    /**
+     * Creates a new notification and sends it to the receiver, as
+     * {@link #postNotification(String, Object, Map)}, without looking up the
+     * name.
      */
+    public void postNotification(@NonNull final NotificationName notificationName,
+                                 @Nullable final Object notificationSender,
+                                 @Nullable final Map<String, Object> userInfo)
+    {
+        final DefaultNotification notification = DefaultNotification.builder().name(notificationName.getName())
+                .object(notificationSender).userInfo(userInfo).build();
+        dispatch(notificationName, notification);
+    }
 
-    // {{{ postNotification(Notification)
+    // }}}
+    // {{{ postNotification(NotificationName,Object)
 
-    @Override
-    public void postNotification(@NonNull final Notification notification)
+    /**
+     * see {@link #postNotification(NotificationName, Object, Map)}
+     */
+    public void postNotification(@NonNull final NotificationName notificationName,
+                                 @Nullable final Object notificationSender)
     {
-        final String notificationName = notification.getName();
+        postNotification(notificationName, notificationSender, (Map<String, Object>) null);
+    }
 
-        dispatchNotifications(notificationName, notification);
-        dispatchNotifications(ANY_NOTIFICATION_NAME, notification);
+    // }}}
+    // {{{ postNotification(NotificationName)
 
+    /**
+     * see {@link #postNotification(NotificationName, Object, Map)}
+     */
+    public void postNotification(@NonNull final NotificationName notificationName)
+    {
+        postNotification(notificationName, null);
     }
 
     // }}}
@@ -372,45 +617,182 @@ public class DefaultNotificationCenter
     }
 
     // }}}
-    // {{{ dispatchNotifications(String,Notification)
+    // {{{ postPayload(String,Object,T)
+
+    /**
+     * Creates a {@link TypedNotification} carrying the given payload and sends
+     * it to the receiver. {@link TypedObserver}s receive the payload directly.
+     *
+     * @param notificationName
+     *            The name of the notification.
+     * @param notificationSender
+     *            The object posting the notification.
+     * @param payload
+     *            The object delivered to the observers.
+     */
+    public <T> void postPayload(@NonNull final String notificationName, @Nullable final Object notificationSender,
+                                @NonNull final T payload)
+    {
+        postNotification(new TypedNotification<T>(notificationName, notificationSender, payload));
+    }
+
+    // }}}
+    // {{{ postPayload(NotificationName,Object,T)
+
+    /**
+     * see {@link #postPayload(String, Object, Object)}, without looking up the
+     * name.
+     */
+    public <T> void postPayload(@NonNull final NotificationName notificationName,
+                                @Nullable final Object notificationSender, @NonNull final T payload)
+    {
+        dispatch(notificationName, new TypedNotification<T>(notificationName.getName(), notificationSender, payload));
+    }
+
+    // }}}
+    // {{{ dispatch
+
+    private void dispatch(@Nullable final NotificationName notificationName, @NonNull final Notification notification)
+    {
+        if (notificationName == null && !this.observers.topics.isEmpty()) {
+            // not observed by its exact name, but it may match a pattern
+            final TopicMatch match = this.observers.topics.match(notification.getName());
+            if (match.lists.length > 0) {
+                dispatch(match.getSnapshot(null, this.observers.any), null, null, notification);
+                return;
+            }
+        }
+
+        // a single lookup: the list for the name holds the merged snapshot
+        // of the observers for the name and for any name
+        dispatch(notificationName, notificationName != null ? this.observers.get(notificationName) : null,
+                notification);
+    }
+
+    /**
+     * Dispatches the notification to the observers of the given list for its
+     * name (if any), the observers of the matching patterns and the observers
+     * for any name.
+     */
+    void dispatch(@Nullable final NotificationName notificationName, @Nullable final ObserverList observerList,
+                  @NonNull final Notification notification)
+    {
+        dispatch(getSnapshot(notificationName, observerList), notificationName, observerList, notification);
+    }
 
-    private void dispatchNotifications(@NonNull final String notificationName, @NonNull final Notification notification)
+    private void dispatch(@NonNull final DispatchSnapshot snapshot, @Nullable final NotificationName notificationName,
+                          @Nullable final ObserverList observerList, @NonNull final Notification notification)
     {
-        final Queue<ObserverReference> queue = this.observers.get(notificationName);
+        reapCollectedReferences();
+
+        final List<Future<?>> concurrentDeliveries = dispatchNotifications(snapshot, notificationName, notification);
+
+        if (observerList != null) {
+            dropIfEmpty(observerList);
+        }
+        if (concurrentDeliveries != null) {
+            awaitDeliveries(concurrentDeliveries);
+        }
+    }
 
-        if (queue != null) {
-            dispatchNotifications(queue, notification);
+    // }}}
+    // {{{ getSnapshot
 
-            if (queue.isEmpty()) { // entries might be gone...
-                this.observers.remove(notificationName, queue); // cleanup
+    @NonNull
+    DispatchSnapshot getSnapshot(@Nullable final NotificationName notificationName,
+                                 @Nullable final ObserverList observerList)
+    {
+        if (notificationName != null && !this.observers.topics.isEmpty()) {
+            final TopicMatch match = this.observers.topics.match(notificationName);
+            if (match.lists.length > 0) {
+                return match.getSnapshot(observerList, this.observers.any);
             }
         }
+
+        return observerList != null ? observerList.getSnapshot(this.observers.any)
+                : this.observers.any.getSnapshot(null);
     }
 
     // }}}
-    // {{{ dispatchNotifications(Queue,Notifications)
+    // {{{ dispatchNotifications
 
-    private void dispatchNotifications(@NonNull final Queue<ObserverReference> queue,
-                                       @NonNull final Notification notification)
+    /**
+     * Calls the matching observers of the given snapshot. Observers which are
+     * not called on the posting thread are started concurrently. The post is
+     * recorded in the metrics, if they are enabled.
+     *
+     * @return The futures of the started concurrent deliveries, or
+     *         <code>null</code> if there are none.
+     */
+    @Nullable
+    private List<Future<?>> dispatchNotifications(@NonNull final DispatchSnapshot snapshot,
+                                                  @Nullable final NotificationName notificationName,
+                                                  @NonNull final Notification notification)
     {
-        final Iterator<ObserverReference> iterator = queue.iterator();
+        final Object notificationSender = notification.getObject();
+        final DispatchMetrics metrics = this.metrics;
+        final ObserverWatchdog watchdog = this.watchdog;
+
+        // without a sender, all observers match, otherwise only those without
+        // a sender criteria and those indexed for the sender
+        final ObserverReference[] first;
+        final ObserverReference[] second;
+        if (notificationSender == null) {
+            first = snapshot.unindexed;
+            second = DispatchSnapshot.NONE;
+        } else {
+            first = snapshot.unfiltered;
+            second = snapshot.bySender.get(notificationSender);
+        }
+
+        // the references with an indexed filter matching the notification
+        final ObserverReference[] third = snapshot.byValue.get(notification);
+
+        List<Future<?>> concurrentDeliveries = null;
+        int fanOut = 0;
+
+        // all arrays are ordered by priority and registration, walk them merged
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        boolean completed = false;
         try {
-            ObserverReference reference;
-            while ((reference = iterator.next()) != null) {
+            while (i < first.length || j < second.length || k < third.length) {
+                ObserverReference reference = i < first.length ? first[i] : null;
+                if (j < second.length && (reference == null || second[j].precedes(reference))) {
+                    reference = second[j];
+                }
+                if (k < third.length && (reference == null || third[k].precedes(reference))) {
+                    reference = third[k];
+                }
+                final boolean indexed;
+                if (i < first.length && reference == first[i]) {
+                    i++;
+                    indexed = false;
+                } else if (j < second.length && reference == second[j]) {
+                    j++;
+                    indexed = false;
+                } else {
+                    k++;
+                    indexed = true;
+                }
+
+                if (reference.isCancelled()) {
+                    continue;
+                }
                 final Observer observer = reference.get();
 
                 if (observer == null) {
-                    iterator.remove(); // reference is dead -> cleanup
+                    removeReference(reference); // reference is dead -> cleanup
                     continue;
                 }
 
-                final Object notificationSender = notification.getObject();
                 if (notificationSender != null) {
                     final WeakReference<Object> senderReference = reference.getSenderReference();
                     if (senderReference != null) {
                         final Object expectedSender = senderReference.get();
                         if (expectedSender == null) {
-                            iterator.remove(); // reference is dead -> cleanup
+                            removeReference(reference); // reference is dead -> cleanup
                             continue;
                         }
                         if (notificationSender != expectedSender) {
@@ -419,69 +801,1919 @@ public class DefaultNotificationCenter
                     }
                 }
 
-                observer.receivedNotification(notification);
+                final NotificationFilter filter = reference.getFilter();
+                if (filter != null && !indexed && !filter.matches(notification)) {
+                    continue;
+                }
+                fanOut++;
+
+                final RateLimiter rateLimiter = reference.getRateLimiter();
+                if (rateLimiter != null && !rateLimiter.offer(notification)) {
+                    continue; // dropped, or delivered later
+                }
+
+                final Mailbox mailbox = reference.getMailbox();
+                if (mailbox != null) {
+                    mailbox.offer(notification);
+                    continue;
+                }
+
+                BatchingExecutor executor = reference.getExecutor();
+                if (executor == null) {
+                    executor = reference.getQuarantine();
+                }
+                if (executor != null) {
+                    executor.execute(new DetachedDelivery(reference, detach(notification)));
+                    continue;
+                }
+
+                if (reference.getDeliveryMode() == DeliveryMode.VIRTUAL_THREAD) {
+                    if (concurrentDeliveries == null) {
+                        concurrentDeliveries = new ArrayList<Future<?>>();
+                    }
+                    concurrentDeliveries.add(ObserverThreadExecutorHolder.EXECUTOR
+                            .submit(new Delivery(reference, observer, notification)));
+                } else if (metrics == null && watchdog == null) {
+                    observer.receivedNotification(notification);
+                } else {
+                    reference.receive(observer, notification, metrics, watchdog);
+                }
+            }
+            completed = true;
+        } finally {
+            if (!completed && concurrentDeliveries != null) {
+                // an observer failed on the posting thread, but the started
+                // deliveries may still read the notification
+                awaitDeliveriesAfterFailure(concurrentDeliveries);
+            }
+        }
+
+        sweepSenderReference(snapshot);
+        if (metrics != null) {
+            if (notificationName != null) {
+                metrics.recordPost(notificationName, fanOut);
+            } else {
+                // not interned, e.g. only observed for any name or by a pattern
+                metrics.recordPost(notification.getName(), fanOut);
             }
-        } catch (final NoSuchElementException ex) {
-            // end of iterator
         }
+
+        return concurrentDeliveries;
     }
 
     // }}}
+    // {{{ sweepSenderReference
 
-    /* **************************************************************************
-     * Internal Helper Classes
-     * **************************************************************************
+    /**
+     * Checks one of the references with a sender criteria, and removes it if
+     * its sender is gone. Since posts with a sender only visit the references
+     * for that sender, this makes sure that all of them are checked over
+     * time.
      */
+    private void sweepSenderReference(@NonNull final DispatchSnapshot snapshot)
+    {
+        final ObserverReference reference = snapshot.nextSenderReferenceToSweep();
+        if (reference != null) {
+            final WeakReference<Object> senderReference = reference.getSenderReference();
+            if (senderReference != null && senderReference.get() == null) {
+                removeReference(reference);
+            }
+        }
+    }
 
-    // {{{ ObserverReference
+    // }}}
+    // {{{ removeReference
 
-    static interface ObserverReference
+    /**
+     * Removes the reference from its list and the observer index, and drops
+     * the list if it became empty.
+     */
+    private void removeReference(@NonNull final ObserverReference reference)
     {
-        @Nullable
-        Observer get();
+        if (!reference.markCancelled()) {
+            return; // already removed or cancelled
+        }
 
-        @Nullable
-        WeakReference<Object> getSenderReference();
+        final ObserverList observerList = reference.getList();
+        if (observerList != null && observerList.remove(reference)) {
+            dropIfEmpty(observerList);
+        }
+        this.observers.byObserver.remove(reference);
     }
 
     // }}}
-    // {{{ WeakObserverReference
+    // {{{ cancel
 
-    private static class WeakObserverReference
-            extends WeakReference<Observer>
-            implements ObserverReference
+    /**
+     * Cancels the subscription: the reference is only marked, so it is
+     * skipped by all dispatches from now on, and removed from its list once
+     * enough references of the list are cancelled.
+     */
+    private void cancel(@NonNull final ObserverReference reference)
     {
-        @Getter @Nullable final WeakReference<Object> senderReference;
+        if (!reference.markCancelled()) {
+            return; // already removed or cancelled
+        }
 
-        public WeakObserverReference(@NonNull final Observer observer, @Nullable final Object sender)
-        {
-            super(observer);
-            this.senderReference = sender == null ? null : new WeakReference<Object>(sender);
+        this.observers.byObserver.remove(reference);
+        final ObserverList observerList = reference.getList();
+        if (observerList != null && observerList.cancelled()) {
+            dropIfEmpty(observerList);
         }
     }
 
     // }}}
-    // {{{ StrongObserverReference
+    // {{{ detach
 
-    private static class StrongObserverReference
-            implements ObserverReference
+    /**
+     * @return The given notification, or a copy if it is a
+     *         {@link PooledNotification}, so it can be kept beyond the
+     *         dispatch
+     */
+    @NonNull
+    static Notification detach(@NonNull final Notification notification)
     {
-        @NonNull final Observer observer;
-        @Getter @Nullable final WeakReference<Object> senderReference;
+        if (notification instanceof PooledNotification) {
+            return new DefaultNotification(notification.getName(), notification.getObject(),
+                    notification.getUserInfo());
+        }
+        return notification;
+    }
 
-        @Override
-        public Observer get()
+    // }}}
+    // {{{ reapCollectedReferences
+
+    /**
+     * Removes the registrations whose observer or sender has been garbage
+     * collected. This piggybacks on adding, removing and posting, so the
+     * table is cleaned up even for names which are never posted. The work per
+     * call is bounded, the remaining references are reaped by the next calls.
+     */
+    private void reapCollectedReferences()
+    {
+        for (int i = 0; i < MAX_REAPED_REFERENCES; i++) {
+            final Reference<?> collected = this.collectedReferences.poll();
+            if (collected == null) {
+                return;
+            }
+            removeReference(((ReapableReference<?>) collected).getOwner());
+        }
+    }
+
+    // }}}
+    // {{{ awaitDeliveriesAfterFailure
+
+    /**
+     * Waits until all given deliveries are done, while the failure of
+     * another observer is propagated. Their own failures are reported to the
+     * uncaught exception handler of the thread.
+     */
+    private static void awaitDeliveriesAfterFailure(@NonNull final List<Future<?>> deliveries)
+    {
+        try {
+            awaitDeliveries(deliveries);
+        } catch (final Throwable ex) {
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+        }
+    }
+
+    // }}}
+    // {{{ awaitDeliveries
+
+    /**
+     * Waits until all given deliveries are done. If one of the observers
+     * failed, its exception is rethrown after all deliveries are done.
+     */
+    private static void awaitDeliveries(@NonNull final List<Future<?>> deliveries)
+    {
+        Throwable failure = null;
+        boolean interrupted = false;
+
+        for (final Future<?> delivery : deliveries) {
+            while (true) {
+                try {
+                    delivery.get();
+                    break;
+                } catch (final InterruptedException ex) {
+                    interrupted = true; // keep the post synchronous, but restore the flag later
+                } catch (final ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException("Observer failed", failure);
+        }
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Diagnostics
+     * **************************************************************************
+     */
+
+    // {{{ setMetricsEnabled
+
+    /**
+     * Enables or disables recording the dispatch metrics: the posts and the
+     * number of called observers per name, and the latencies of the
+     * observers. Enabling them again starts a new recording. While disabled,
+     * dispatching is not slowed down.
+     */
+    public void setMetricsEnabled(final boolean enabled)
+    {
+        this.metrics = enabled ? new DispatchMetrics() : null;
+    }
+
+    // }}}
+    // {{{ isMetricsEnabled
+
+    public boolean isMetricsEnabled()
+    {
+        return this.metrics != null;
+    }
+
+    // }}}
+    // {{{ getMetrics
+
+    /**
+     * @return The metrics recorded since they were enabled, or
+     *         <code>null</code> if they are disabled
+     */
+    @Nullable
+    public MetricsSnapshot getMetrics()
+    {
+        final DispatchMetrics metrics = this.metrics;
+        return metrics != null ? metrics.snapshot() : null;
+    }
+
+    // }}}
+    // {{{ setWatchdog
+
+    /**
+     * Sets the watchdog reporting stalled observer calls, or
+     * <code>null</code> to stop watching. A replaced watchdog is stopped.
+     */
+    public synchronized void setWatchdog(@Nullable final ObserverWatchdog watchdog)
+    {
+        final ObserverWatchdog previous = this.watchdog;
+        if (previous != null && previous != watchdog) {
+            previous.stop();
+        }
+        this.watchdog = watchdog;
+        if (watchdog != null) {
+            watchdog.start();
+        }
+    }
+
+    // }}}
+    // {{{ getWatchdog
+
+    @Nullable
+    public ObserverWatchdog getWatchdog()
+    {
+        return this.watchdog;
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Post Notification Asynchronously
+     * **************************************************************************
+     */
+
+    // {{{ getAsyncExecutor
+
+    /**
+     * @return The executor used by the <code>postNotificationAsync</code>
+     *         methods. If none was set, a shared pool of daemon threads is
+     *         used.
+     */
+    @NonNull
+    public Executor getAsyncExecutor()
+    {
+        final Executor executor = this.asyncExecutor;
+        return executor != null ? executor : DefaultAsyncExecutorHolder.EXECUTOR;
+    }
+
+    // }}}
+    // {{{ setAsyncExecutor
+
+    /**
+     * Sets the executor used by the <code>postNotificationAsync</code> methods.
+     *
+     * @param asyncExecutor
+     *            The executor dispatching the notifications, or
+     *            <code>null</code> to use the shared default executor.
+     */
+    public DefaultNotificationCenter setAsyncExecutor(@Nullable final Executor asyncExecutor)
+    {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    // }}}
+    // {{{ postNotificationAsync(Notification)
+
+    @Override
+    public Future<Notification> postNotificationAsync(@NonNull final Notification notification)
+    {
+        final FutureTask<Notification> task = new FutureTask<Notification>(new Runnable() {
+            @Override
+            public void run()
+            {
+                postNotification(notification);
+            }
+        }, notification);
+
+        getAsyncExecutor().execute(task);
+
+        return task;
+    }
+
+    // }}}
+    // {{{ postNotificationAsync(String,Object,Map)
+
+    @Override
+    public Future<Notification> postNotificationAsync(@NonNull final String notificationName,
+                                                      @Nullable final Object notificationSender,
+                                                      @Nullable final Map<String, Object> userInfo)
+    {
+        final DefaultNotification notification = DefaultNotification.builder().name(notificationName)
+                .object(notificationSender).userInfo(userInfo).build();
+        return postNotificationAsync(notification);
+    }
+
+    // }}}
+    // {{{ postNotificationAsync(String,Object,Object...)
+
+    /**
+     * see {@link #postNotificationAsync(String, Object, Map)} and
+     * {@link #createUserInfo(Object...)}
+     */
+    public Future<Notification> postNotificationAsync(@NonNull final String notificationName,
+                                                      @Nullable final Object notificationSender,
+                                                      final Object... userInfo)
+    {
+        return postNotificationAsync(notificationName, notificationSender, createUserInfo(userInfo));
+    }
+
+    // }}}
+    // {{{ postNotificationAsync(String,Object)
+
+    @Override
+    public Future<Notification> postNotificationAsync(@NonNull final String notificationName,
+                                                      @Nullable final Object notificationSender)
+    {
+        return postNotificationAsync(notificationName, notificationSender, (Map<String, Object>) null);
+    }
+
+    // }}}
+    // {{{ postNotificationAsync(String)
+
+    /**
+     * see {@link #postNotificationAsync(String, Object)}
+     */
+    public Future<Notification> postNotificationAsync(@NonNull final String notificationName)
+    {
+        return postNotificationAsync(notificationName, null);
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Internal Helper Classes
+     * **************************************************************************
+     */
+
+    // {{{ ObserverReference
+
+    /**
+     * A registration in the dispatch table: the observer, its criteria and
+     * its options. It is returned as the {@link Subscription} of the
+     * registration.
+     */
+    abstract static class ObserverReference
+            implements Subscription
+    {
+        private static final AtomicIntegerFieldUpdater<ObserverReference> CANCELLED =
+                AtomicIntegerFieldUpdater.newUpdater(ObserverReference.class, "cancelled");
+
+        /** the identity hash code of the observer, which may be collected meanwhile */
+        @Getter final int observerHash;
+        @Getter @Nullable final WeakReference<Object> senderReference;
+        /** the identity hash code of the sender criteria, if any */
+        @Getter final int senderHash;
+        @Getter @NonNull final DeliveryMode deliveryMode;
+        /** the observers with a higher priority are called first */
+        @Getter final int priority;
+        /** the position of the registration, defining the order of observers with the same priority */
+        @Getter final long order;
+
+        /** the list containing this reference */
+        @Getter @Setter @Nullable volatile ObserverList list;
+
+        /** limits the deliveries, if the registration has a rate limit */
+        @Getter @Nullable final RateLimiter rateLimiter;
+        /** queues the deliveries, if the registration has a mailbox */
+        @Getter @Nullable final Mailbox mailbox;
+        /** calls the observer, if the registration is bound to an executor */
+        @Getter @Nullable final BatchingExecutor executor;
+        /** the condition on the notifications, if any */
+        @Getter @Nullable final NotificationFilter filter;
+
+        /** the latencies of the calls, while metrics are enabled */
+        @Getter @Setter @Nullable volatile DispatchMetrics.LatencyRecorder latencyRecorder;
+
+        /** calls the observer asynchronously, once it stalled repeatedly, see {@link ObserverWatchdog} */
+        @Getter @Nullable volatile BatchingExecutor quarantine;
+        // the number of stalls reported by the watchdog, only changed by its check
+        private volatile int stallCount;
+
+        @NonNull private final DefaultNotificationCenter center;
+
+        // 1 once the registration is cancelled or removed
+        private volatile int cancelled;
+
+        ObserverReference(@NonNull final Observer observer, @Nullable final Object sender,
+                          @NonNull final ObserverOptions options, final long order,
+                          @NonNull final DefaultNotificationCenter center)
+        {
+            this.observerHash = System.identityHashCode(observer);
+            this.senderReference = sender == null ? null
+                    : new ReapableReference<Object>(sender, this, center.collectedReferences);
+            this.senderHash = System.identityHashCode(sender);
+            this.deliveryMode = options.getDeliveryMode();
+            this.priority = options.getPriority();
+            this.order = order;
+            this.rateLimiter = options.getRateLimit() == RateLimit.NONE ? null
+                    : new RateLimiter(this, options);
+            this.mailbox = options.getMailboxCapacity() == 0 ? null : new Mailbox(this, options);
+            this.executor = options.getExecutor() == null ? null
+                    : center.getBatchingExecutor(options.getExecutor());
+            this.filter = options.getFilter();
+            this.center = center;
+        }
+
+        @Nullable
+        abstract Observer get();
+
+        /**
+         * @return The executor delivering outside of the dispatch: the one of
+         *         the registration, or else the async executor of the center
+         */
+        @NonNull
+        Executor getDetachedExecutor()
+        {
+            return this.executor != null ? this.executor : this.center.getAsyncExecutor();
+        }
+
+        /**
+         * Calls the observer, recording the call in the metrics and the
+         * watchdog of the center, if set.
+         */
+        void receive(@NonNull final Observer observer, @NonNull final Notification notification)
+        {
+            final DispatchMetrics metrics = this.center.metrics;
+            final ObserverWatchdog watchdog = this.center.watchdog;
+            if (metrics == null && watchdog == null) {
+                observer.receivedNotification(notification);
+            } else {
+                receive(observer, notification, metrics, watchdog);
+            }
+        }
+
+        /**
+         * Calls the observer, recording the call in the given metrics and
+         * watchdog, if any.
+         */
+        void receive(@NonNull final Observer observer, @NonNull final Notification notification,
+                     @Nullable final DispatchMetrics metrics, @Nullable final ObserverWatchdog watchdog)
+        {
+            final ObserverWatchdog.CallStack stack = watchdog != null ? watchdog.enter(this, notification) : null;
+            final long start = metrics != null ? System.nanoTime() : 0;
+            try {
+                observer.receivedNotification(notification);
+            } finally {
+                if (metrics != null) {
+                    metrics.getRecorder(this).record(System.nanoTime() - start);
+                }
+                if (stack != null) {
+                    watchdog.exit(stack);
+                }
+            }
+        }
+
+        /**
+         * Counts a stall of the observer, only called by the watchdog check.
+         *
+         * @return The number of stalls so far
+         */
+        int stalled()
+        {
+            return ++this.stallCount;
+        }
+
+        /**
+         * Moves the deliveries of the posting thread to the async executor of
+         * the center, keeping their order.
+         *
+         * @return <code>true</code> if the registration was quarantined by
+         *         this call
+         */
+        synchronized boolean quarantine()
+        {
+            if (this.quarantine != null) {
+                return false;
+            }
+            final DefaultNotificationCenter center = this.center;
+            this.quarantine = new BatchingExecutor(new Executor() {
+                @Override
+                public void execute(@NonNull final Runnable command)
+                {
+                    center.getAsyncExecutor().execute(command);
+                }
+            });
+            return true;
+        }
+
+        /**
+         * Delivers a notification outside of the dispatch, unless the
+         * registration has been removed meanwhile. Failures of the observer
+         * are reported to the uncaught exception handler of the thread.
+         */
+        void deliverDetached(@NonNull final Notification notification)
+        {
+            final Observer observer = get();
+            if (observer == null || isCancelled()) {
+                return;
+            }
+
+            try {
+                receive(observer, notification);
+            } catch (final Throwable ex) {
+                // an observer failed, even with an error, report it, but keep delivering
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+            }
+        }
+
+        /**
+         * @return <code>true</code> if this observer is called before the
+         *         other one
+         */
+        final boolean precedes(@NonNull final ObserverReference other)
+        {
+            return this.priority > other.priority || (this.priority == other.priority && this.order < other.order);
+        }
+
+        @Override
+        public void cancel()
+        {
+            this.center.cancel(this);
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return this.cancelled != 0;
+        }
+
+        /**
+         * Marks the reference as cancelled and releases the observer.
+         *
+         * @return <code>true</code> if the reference was marked by this call
+         */
+        boolean markCancelled()
+        {
+            if (!CANCELLED.compareAndSet(this, 0, 1)) {
+                return false;
+            }
+            release();
+            return true;
+        }
+
+        /**
+         * Drops the reference to the observer, so a cancelled registration
+         * does not keep it reachable until its list is compacted.
+         */
+        void release()
+        {
+        }
+    }
+
+    // }}}
+    // {{{ ObserverTable
+
+    /**
+     * The dispatch table, mapping notification names to the observers
+     * registered for them, by the id of the {@link NotificationName}. The
+     * observers for any name are kept separately, so posting needs a single
+     * array access.
+     * <p>
+     * Reading is lock free. Adding and dropping lists is serialized, since
+     * the table has to grow with the number of names.
+     * <p>
+     * Additionally, all registrations are indexed by observer, so removing an
+     * observer doesn't need to visit the registrations of all others, and the
+     * lists of patterns are indexed by their segments, see {@link TopicIndex}.
+     */
+    static final class ObserverTable
+    {
+        private volatile AtomicReferenceArray<ObserverList> named = new AtomicReferenceArray<ObserverList>(16);
+
+        final ObserverList any = new ObserverList(null);
+
+        final ObserverIndex byObserver = new ObserverIndex();
+
+        final TopicIndex topics = new TopicIndex();
+
+        @Nullable
+        ObserverList get(@NonNull final NotificationName notificationName)
+        {
+            final AtomicReferenceArray<ObserverList> lists = this.named;
+            final int id = notificationName.getId();
+            return id < lists.length() ? lists.get(id) : null;
+        }
+
+        void add(@NonNull final NotificationName notificationName, @NonNull final ObserverReference reference)
+        {
+            while (true) {
+                ObserverList observerList = get(notificationName);
+                if (observerList == null) {
+                    observerList = getOrCreate(notificationName);
+                }
+
+                reference.setList(observerList);
+                if (observerList.add(reference)) {
+                    return;
+                }
+                // the list was emptied and is being dropped, help and retry with a new one
+                drop(observerList);
+            }
+        }
+
+        @NonNull
+        private synchronized ObserverList getOrCreate(@NonNull final NotificationName notificationName)
+        {
+            final int id = notificationName.getId();
+            AtomicReferenceArray<ObserverList> lists = this.named;
+            if (id >= lists.length()) {
+                final AtomicReferenceArray<ObserverList> grown = new AtomicReferenceArray<ObserverList>(
+                        Math.max(lists.length() * 2, id + 1));
+                for (int i = 0; i < lists.length(); i++) {
+                    grown.set(i, lists.get(i));
+                }
+                this.named = lists = grown;
+            }
+
+            ObserverList observerList = lists.get(id);
+            if (observerList == null) {
+                observerList = new ObserverList(notificationName);
+                lists.set(id, observerList);
+                if (notificationName.isPattern()) {
+                    this.topics.add(observerList);
+                }
+            }
+            return observerList;
+        }
+
+        synchronized void drop(@NonNull final ObserverList observerList)
+        {
+            final NotificationName notificationName = observerList.getName();
+            if (notificationName != null && this.named.compareAndSet(notificationName.getId(), observerList, null)
+                    && notificationName.isPattern()) {
+                this.topics.remove(observerList);
+            }
+        }
+
+        /**
+         * @return The lists for all names, without the one for any name.
+         */
+        @NonNull
+        List<ObserverList> lists()
+        {
+            final AtomicReferenceArray<ObserverList> lists = this.named;
+            final List<ObserverList> result = new ArrayList<ObserverList>();
+            for (int i = 0; i < lists.length(); i++) {
+                final ObserverList observerList = lists.get(i);
+                if (observerList != null) {
+                    result.add(observerList);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Removes all observers.
+         */
+        synchronized void clear()
+        {
+            final AtomicReferenceArray<ObserverList> lists = this.named;
+            for (int i = 0; i < lists.length(); i++) {
+                lists.set(i, null);
+            }
+            this.any.clear();
+            this.byObserver.clear();
+            this.topics.clear();
+        }
+
+        /**
+         * @return The number of lists containing observers, including the one
+         *         for any name.
+         */
+        int size()
+        {
+            return lists().size() + (this.any.isEmpty() ? 0 : 1);
+        }
+
+        /**
+         * @return The lists containing observers, the one for any name last.
+         */
+        @NonNull
+        Enumeration<ObserverList> elements()
+        {
+            final Vector<ObserverList> lists = new Vector<ObserverList>(lists());
+            if (!this.any.isEmpty()) {
+                lists.add(this.any);
+            }
+            return lists.elements();
+        }
+    }
+
+    // }}}
+    // {{{ ObserverIndex
+
+    /**
+     * The registrations by the identity of their observer. Weak observers are
+     * not retained, the references are keyed by the identity hash code taken
+     * at registration, and removed from here when they are removed from the
+     * dispatch table.
+     * <p>
+     * The index is split into stripes guarded by their own lock, so
+     * concurrent registrations of different observers rarely contend.
+     */
+    static final class ObserverIndex
+    {
+        private static final int STRIPES = 16;
+
+        private final List<Map<Integer, Set<ObserverReference>>> stripes =
+                new ArrayList<Map<Integer, Set<ObserverReference>>>(STRIPES);
+
+        ObserverIndex()
+        {
+            for (int i = 0; i < STRIPES; i++) {
+                this.stripes.add(new HashMap<Integer, Set<ObserverReference>>());
+            }
+        }
+
+        void add(@NonNull final ObserverReference reference)
+        {
+            final Integer hash = reference.getObserverHash();
+            final Map<Integer, Set<ObserverReference>> stripe = stripe(hash);
+            synchronized (stripe) {
+                Set<ObserverReference> references = stripe.get(hash);
+                if (references == null) {
+                    references = new HashSet<ObserverReference>();
+                    stripe.put(hash, references);
+                }
+                references.add(reference);
+            }
+        }
+
+        void remove(@NonNull final ObserverReference reference)
+        {
+            final Integer hash = reference.getObserverHash();
+            final Map<Integer, Set<ObserverReference>> stripe = stripe(hash);
+            synchronized (stripe) {
+                final Set<ObserverReference> references = stripe.get(hash);
+                if (references != null && references.remove(reference) && references.isEmpty()) {
+                    stripe.remove(hash);
+                }
+            }
+        }
+
+        /**
+         * @return A copy of the registrations of the given observer.
+         */
+        @NonNull
+        List<ObserverReference> find(@NonNull final Observer observer)
+        {
+            final Integer hash = System.identityHashCode(observer);
+            final Map<Integer, Set<ObserverReference>> stripe = stripe(hash);
+            final List<ObserverReference> result = new ArrayList<ObserverReference>();
+            synchronized (stripe) {
+                final Set<ObserverReference> references = stripe.get(hash);
+                if (references != null) {
+                    for (final ObserverReference reference : references) {
+                        if (reference.get() == observer) {
+                            result.add(reference);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        void clear()
+        {
+            for (final Map<Integer, Set<ObserverReference>> stripe : this.stripes) {
+                synchronized (stripe) {
+                    stripe.clear();
+                }
+            }
+        }
+
+        @NonNull
+        private Map<Integer, Set<ObserverReference>> stripe(final int hash)
+        {
+            return this.stripes.get((hash ^ (hash >>> 16)) & (STRIPES - 1));
+        }
+    }
+
+    // }}}
+    // {{{ TopicIndex
+
+    /**
+     * The lists of the pattern names, in a trie of their segments. A name is
+     * matched by walking the trie segment by segment, following the literal
+     * segment, <code>*</code> for exactly one segment and <code>#</code> for
+     * any number of segments.
+     * <p>
+     * The matching lists of a posted name are cached by the id of the name,
+     * until a pattern is added or removed. So posting costs an array access
+     * more than for exact names, independent of the number of patterns.
+     */
+    static final class TopicIndex
+    {
+        private static final ObserverList[] NO_LISTS = new ObserverList[0];
+
+        // the names not interned whose matches are cached, before the cache is cleared
+        private static final int MAX_CACHED_NAMES = 1024;
+
+        // immutable, replaced by the writers, which synchronize on this
+        private volatile TopicNode root = TopicNode.EMPTY;
+
+        // the number of patterns, the index is skipped without any
+        private volatile int patternCount;
+
+        // incremented whenever a pattern is added or removed, invalidating the cached matches
+        private volatile int version;
+
+        private volatile AtomicReferenceArray<TopicMatch> matches = new AtomicReferenceArray<TopicMatch>(16);
+
+        // the matches of names posted by string without being interned
+        private final ConcurrentHashMap<String, TopicMatch> namedMatches = new ConcurrentHashMap<String, TopicMatch>();
+
+        boolean isEmpty()
+        {
+            return this.patternCount == 0;
+        }
+
+        synchronized void add(@NonNull final ObserverList observerList)
+        {
+            this.root = this.root.with(split(observerList.getName().getName()), 0, observerList);
+            this.patternCount++;
+            changed();
+        }
+
+        synchronized void remove(@NonNull final ObserverList observerList)
+        {
+            final String[] segments = split(observerList.getName().getName());
+            if (this.root.get(segments) != observerList) {
+                return; // not indexed
+            }
+
+            // the nodes which lead to no other pattern are pruned
+            this.root = this.root.with(segments, 0, null);
+            this.patternCount--;
+            changed();
+        }
+
+        synchronized void clear()
+        {
+            this.root = TopicNode.EMPTY;
+            this.patternCount = 0;
+            changed();
+        }
+
+        // called by the writers after publishing the new root
+        private void changed()
+        {
+            this.version++;
+            this.namedMatches.clear();
+        }
+
+        /**
+         * @return The cached match of the given name
+         */
+        @NonNull
+        TopicMatch match(@NonNull final NotificationName notificationName)
+        {
+            final int version = this.version;
+            final int id = notificationName.getId();
+            AtomicReferenceArray<TopicMatch> matches = this.matches;
+            if (id < matches.length()) {
+                final TopicMatch cached = matches.get(id);
+                if (cached != null && cached.version == version) {
+                    return cached;
+                }
+            }
+
+            ObserverList[] lists = matchLists(notificationName.getName());
+            if (notificationName.isPattern()) {
+                lists = without(lists, notificationName); // posted as a name, it is observed exactly
+            }
+            final TopicMatch match = new TopicMatch(version, lists);
+            if (id >= matches.length()) {
+                matches = grow(id);
+            }
+            matches.set(id, match);
+            return match;
+        }
+
+        /**
+         * Returns the match of a name which is not interned. The matches of
+         * the last {@value #MAX_CACHED_NAMES} names are cached, so names
+         * posted by string repeatedly are matched once.
+         */
+        @NonNull
+        TopicMatch match(@NonNull final String notificationName)
+        {
+            final int version = this.version;
+            final TopicMatch cached = this.namedMatches.get(notificationName);
+            if (cached != null && cached.version == version) {
+                return cached;
+            }
+
+            final TopicMatch match = new TopicMatch(version, matchLists(notificationName));
+            if (this.namedMatches.size() >= MAX_CACHED_NAMES) {
+                this.namedMatches.clear();
+            }
+            this.namedMatches.put(notificationName, match);
+            return match;
+        }
+
+        // reads the current root without locking, a concurrent change only increments the version
+        @NonNull
+        private ObserverList[] matchLists(@NonNull final String notificationName)
+        {
+            final List<ObserverList> result = new ArrayList<ObserverList>();
+            match(this.root, split(notificationName), 0, result);
+            return result.isEmpty() ? NO_LISTS : result.toArray(new ObserverList[result.size()]);
+        }
+
+        @NonNull
+        private static ObserverList[] without(@NonNull final ObserverList[] lists,
+                                              @NonNull final NotificationName notificationName)
+        {
+            final List<ObserverList> result = new ArrayList<ObserverList>();
+            for (final ObserverList observerList : lists) {
+                if (observerList.getName() != notificationName) {
+                    result.add(observerList);
+                }
+            }
+            return result.isEmpty() ? NO_LISTS : result.toArray(new ObserverList[result.size()]);
+        }
+
+        private static void match(@NonNull final TopicNode node, @NonNull final String[] segments, final int index,
+                                  @NonNull final List<ObserverList> result)
+        {
+            final TopicNode any = node.children.get("#");
+            if (index == segments.length) {
+                if (node.list != null && !result.contains(node.list)) {
+                    result.add(node.list);
+                }
+                if (any != null) {
+                    match(any, segments, index, result); // # matches no segment, too
+                }
+                return;
+            }
+
+            final TopicNode literal = node.children.get(segments[index]);
+            if (literal != null) {
+                match(literal, segments, index + 1, result);
+            }
+            final TopicNode one = node.children.get("*");
+            if (one != null) {
+                match(one, segments, index + 1, result);
+            }
+            if (any != null) {
+                for (int i = index; i <= segments.length; i++) {
+                    match(any, segments, i, result);
+                }
+            }
+        }
+
+        @NonNull
+        private synchronized AtomicReferenceArray<TopicMatch> grow(final int id)
+        {
+            final AtomicReferenceArray<TopicMatch> matches = this.matches;
+            if (id < matches.length()) {
+                return matches;
+            }
+            final AtomicReferenceArray<TopicMatch> grown = new AtomicReferenceArray<TopicMatch>(
+                    Math.max(matches.length() * 2, id + 1));
+            for (int i = 0; i < matches.length(); i++) {
+                grown.set(i, matches.get(i));
+            }
+            this.matches = grown;
+            return grown;
+        }
+
+        /**
+         * @return The segments of the given name, separated by dots
+         */
+        @NonNull
+        static String[] split(@NonNull final String name)
+        {
+            final List<String> segments = new ArrayList<String>();
+            int start = 0;
+            int end;
+            while ((end = name.indexOf('.', start)) >= 0) {
+                segments.add(name.substring(start, end));
+                start = end + 1;
+            }
+            segments.add(name.substring(start));
+            return segments.toArray(new String[segments.size()]);
+        }
+    }
+
+    // }}}
+    // {{{ TopicNode
+
+    /**
+     * A node of the trie of patterns. Nodes are never modified once
+     * published, a change copies the nodes on the path to the changed one.
+     */
+    private static final class TopicNode
+    {
+        static final TopicNode EMPTY = new TopicNode(Collections.<String, TopicNode> emptyMap(), null);
+
+        @NonNull final Map<String, TopicNode> children;
+
+        // the list of the pattern ending here, if any
+        @Nullable final ObserverList list;
+
+        TopicNode(@NonNull final Map<String, TopicNode> children, @Nullable final ObserverList list)
+        {
+            this.children = children;
+            this.list = list;
+        }
+
+        boolean isEmpty()
+        {
+            return this.list == null && this.children.isEmpty();
+        }
+
+        /**
+         * @return The list of the pattern with the given segments, if any
+         */
+        @Nullable
+        ObserverList get(@NonNull final String[] segments)
+        {
+            TopicNode node = this;
+            for (final String segment : segments) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    return null;
+                }
+            }
+            return node.list;
+        }
+
+        /**
+         * @return A copy of this node with the given list set for the pattern
+         *         of the segments from the given index on, or removed for
+         *         <code>null</code>, pruning the nodes becoming empty
+         */
+        @NonNull
+        TopicNode with(@NonNull final String[] segments, final int index, @Nullable final ObserverList list)
+        {
+            if (index == segments.length) {
+                return new TopicNode(this.children, list);
+            }
+
+            final TopicNode child = this.children.get(segments[index]);
+            final TopicNode updated = (child != null ? child : EMPTY).with(segments, index + 1, list);
+            final Map<String, TopicNode> children = new HashMap<String, TopicNode>(this.children);
+            if (updated.isEmpty()) {
+                children.remove(segments[index]);
+            } else {
+                children.put(segments[index], updated);
+            }
+            return new TopicNode(children, this.list);
+        }
+    }
+
+    // }}}
+    // {{{ TopicMatch
+
+    /**
+     * The lists of the patterns matching a posted name, with the dispatch
+     * snapshot of them merged with the lists of the name itself and of any
+     * name.
+     */
+    static final class TopicMatch
+    {
+        final int version;
+        @NonNull final ObserverList[] lists;
+
+        @Nullable private volatile DispatchSnapshot snapshot;
+
+        TopicMatch(final int version, @NonNull final ObserverList[] lists)
+        {
+            this.version = version;
+            this.lists = lists;
+        }
+
+        /**
+         * Returns the dispatch snapshot of the matching lists, the given list
+         * of the name and the list for any name. It is cached until one of
+         * the lists changes.
+         */
+        @NonNull
+        DispatchSnapshot getSnapshot(@Nullable final ObserverList observerList, @NonNull final ObserverList any)
+        {
+            final ObserverReference[] own = observerList != null ? observerList.get() : DispatchSnapshot.NONE;
+            final ObserverReference[] others = any.get();
+
+            final DispatchSnapshot cached = this.snapshot;
+            if (cached != null && cached.sources[0] == own && cached.sources[1] == others) {
+                int i = 0;
+                while (i < this.lists.length && cached.sources[i + 2] == this.lists[i].get()) {
+                    i++;
+                }
+                if (i == this.lists.length) {
+                    return cached;
+                }
+            }
+
+            final ObserverReference[][] sources = new ObserverReference[this.lists.length + 2][];
+            sources[0] = own;
+            sources[1] = others;
+            for (int i = 0; i < this.lists.length; i++) {
+                sources[i + 2] = this.lists[i].get();
+            }
+            final DispatchSnapshot updated = new DispatchSnapshot(sources);
+            this.snapshot = updated;
+            return updated;
+        }
+    }
+
+    // }}}
+    // {{{ ObserverList
+
+    /**
+     * The observers registered for a single notification name.
+     * <p>
+     * Since notifications are posted far more often than observers are added
+     * or removed, the observers are kept in an immutable array, which is
+     * copied and swapped atomically on every change. Dispatching just walks
+     * the current array, without locking or allocating.
+     */
+    static final class ObserverList
+    {
+        private static final ObserverReference[] EMPTY = new ObserverReference[0];
+
+        // marks a list that was dropped from the dispatch table
+        private static final ObserverReference[] RETIRED = new ObserverReference[0];
+
+        @Getter @Nullable private final NotificationName name;
+
+        private static final Contents EMPTY_CONTENTS = new Contents(EMPTY, 0);
+        private static final Contents RETIRED_CONTENTS = new Contents(RETIRED, 0);
+
+        private final AtomicReference<Contents> contents = new AtomicReference<Contents>(EMPTY_CONTENTS);
+
+        @Nullable private volatile DispatchSnapshot snapshot;
+
+        /**
+         * @param name
+         *            The name of the observed notifications, or
+         *            <code>null</code> for the list of any name
+         */
+        ObserverList(@Nullable final NotificationName name)
+        {
+            this.name = name;
+        }
+
+        /**
+         * @return The current observers. The array must not be modified.
+         */
+        @NonNull
+        ObserverReference[] get()
+        {
+            return this.contents.get().references;
+        }
+
+        /**
+         * @return <code>false</code> if the list has been retired and must not
+         *         be used anymore
+         */
+        boolean add(@NonNull final ObserverReference reference)
+        {
+            while (true) {
+                final Contents contents = this.contents.get();
+                final ObserverReference[] current = contents.references;
+                if (current == RETIRED) {
+                    return false;
+                }
+
+                // keep the array ordered, behind the references with the same priority
+                int index = current.length;
+                while (index > 0 && reference.precedes(current[index - 1])) {
+                    index--;
+                }
+
+                final ObserverReference[] updated = new ObserverReference[current.length + 1];
+                System.arraycopy(current, 0, updated, 0, index);
+                updated[index] = reference;
+                System.arraycopy(current, index, updated, index + 1, current.length - index);
+
+                if (this.contents.compareAndSet(contents, new Contents(updated, contents.cancelled))) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return <code>false</code> if the reference was not in the list
+         */
+        boolean remove(@NonNull final ObserverReference reference)
+        {
+            while (true) {
+                final Contents contents = this.contents.get();
+                final ObserverReference[] current = contents.references;
+
+                int index = -1;
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] == reference) {
+                        index = i;
+                        break;
+                    }
+                }
+                if (index < 0) {
+                    return false; // already removed
+                }
+
+                final ObserverReference[] updated;
+                if (current.length == 1) {
+                    updated = EMPTY;
+                } else {
+                    updated = new ObserverReference[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, index);
+                    System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+                }
+
+                // removed references are not counted as cancelled, see removeReference
+                if (this.contents.compareAndSet(contents, new Contents(updated, contents.cancelled))) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Counts a cancelled reference of this list. The cancelled references
+         * are removed once they make up half of the list, so the array is
+         * copied once for several cancellations. The count is swapped
+         * together with the array, and reset by the removal.
+         *
+         * @return <code>true</code> if the cancelled references were removed
+         */
+        boolean cancelled()
+        {
+            while (true) {
+                final Contents contents = this.contents.get();
+                final ObserverReference[] current = contents.references;
+                final int cancelled = contents.cancelled + 1;
+                if (cancelled * 2 < current.length) {
+                    if (this.contents.compareAndSet(contents, new Contents(current, cancelled))) {
+                        return false;
+                    }
+                    continue;
+                }
+
+                final ObserverReference[] live = new ObserverReference[current.length];
+                int liveCount = 0;
+                for (int i = 0; i < current.length; i++) {
+                    if (!current[i].isCancelled()) {
+                        live[liveCount++] = current[i];
+                    }
+                }
+
+                // if removed concurrently, only the count is corrected
+                final ObserverReference[] updated = liveCount == current.length ? current
+                        : liveCount == 0 ? EMPTY : Arrays.copyOf(live, liveCount);
+                if (current == RETIRED || this.contents.compareAndSet(contents, new Contents(updated, 0))) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Removes all references, unless the list has been retired.
+         */
+        void clear()
+        {
+            while (true) {
+                final Contents current = this.contents.get();
+                if (current == RETIRED_CONTENTS || this.contents.compareAndSet(current, EMPTY_CONTENTS)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the dispatch snapshot of the references of this list merged
+         * with the references of the given list. The snapshot is cached until
+         * one of the lists changes.
+         */
+        @NonNull
+        DispatchSnapshot getSnapshot(@Nullable final ObserverList other)
+        {
+            final ObserverReference[] own = get();
+            final ObserverReference[] others = other != null ? other.get() : EMPTY;
+
+            final DispatchSnapshot cached = this.snapshot;
+            if (cached != null && cached.sources[0] == own && cached.sources[1] == others) {
+                return cached;
+            }
+
+            final DispatchSnapshot updated = new DispatchSnapshot(own, others);
+            this.snapshot = updated;
+            return updated;
+        }
+
+        /**
+         * Retires the list, if it contains no observers.
+         *
+         * @return <code>true</code> if the list was retired by this call
+         */
+        boolean retireIfEmpty()
+        {
+            final Contents current = this.contents.get();
+            return current.references == EMPTY && this.contents.compareAndSet(current, RETIRED_CONTENTS);
+        }
+
+        /**
+         * @return <code>true</code> if the list has been dropped from the
+         *         dispatch table
+         */
+        boolean isRetired()
+        {
+            return get() == RETIRED;
+        }
+
+        boolean isEmpty()
+        {
+            return get().length == 0;
+        }
+
+        @Nullable
+        ObserverReference peek()
+        {
+            final ObserverReference[] current = get();
+            return current.length == 0 ? null : current[0];
+        }
+
+        /**
+         * The references of a list with the number of those cancelled, which
+         * are swapped together.
+         */
+        private static final class Contents
+        {
+            @NonNull final ObserverReference[] references;
+            // the approximate number of cancelled references still in the array
+            final int cancelled;
+
+            Contents(@NonNull final ObserverReference[] references, final int cancelled)
+            {
+                this.references = references;
+                this.cancelled = cancelled;
+            }
+        }
+    }
+
+    // }}}
+    // {{{ DispatchSnapshot
+
+    /**
+     * The references of several lists, merged and indexed for dispatching,
+     * see {@link ObserverList#getSnapshot(ObserverList)} and
+     * {@link TopicMatch#getSnapshot(ObserverList, ObserverList)}. All arrays
+     * are ordered by priority and registration.
+     */
+    static final class DispatchSnapshot
+    {
+        static final ObserverReference[] NONE = new ObserverReference[0];
+
+        /** the arrays of the lists the snapshot was built from, to validate it */
+        @NonNull final ObserverReference[][] sources;
+
+        /** all references */
+        @NonNull final ObserverReference[] all;
+        /** the references without an indexed filter */
+        @NonNull final ObserverReference[] unindexed;
+        /** the references without an indexed filter and a sender criteria */
+        @NonNull final ObserverReference[] unfiltered;
+        /** the references without an indexed filter, with a sender criteria */
+        @NonNull final ObserverReference[] filtered;
+        /** the references without an indexed filter, with a sender criteria, indexed by sender */
+        @NonNull final SenderIndex bySender;
+        /** the references with an indexed filter, indexed by the userInfo value */
+        @NonNull final ValueIndex byValue;
+
+        // position of the next filtered reference to check, updated racily
+        private int sweepPosition;
+
+        DispatchSnapshot(@NonNull final ObserverReference[]... sources)
+        {
+            this.sources = sources;
+            ObserverReference[] all = NONE;
+            for (final ObserverReference[] source : sources) {
+                all = merge(all, source);
+            }
+            this.all = all;
+
+            int indexedCount = 0;
+            for (final ObserverReference reference : this.all) {
+                if (reference.getFilter() instanceof NotificationFilters.EqualTo) {
+                    indexedCount++;
+                }
+            }
+
+            if (indexedCount == 0) {
+                this.unindexed = this.all;
+                this.byValue = ValueIndex.EMPTY;
+            } else {
+                this.unindexed = new ObserverReference[this.all.length - indexedCount];
+                final ObserverReference[] indexed = new ObserverReference[indexedCount];
+                int u = 0;
+                int x = 0;
+                for (final ObserverReference reference : this.all) {
+                    if (reference.getFilter() instanceof NotificationFilters.EqualTo) {
+                        indexed[x++] = reference;
+                    } else {
+                        this.unindexed[u++] = reference;
+                    }
+                }
+                this.byValue = ValueIndex.create(indexed);
+            }
+
+            int filteredCount = 0;
+            for (final ObserverReference reference : this.unindexed) {
+                if (reference.getSenderReference() != null) {
+                    filteredCount++;
+                }
+            }
+
+            if (filteredCount == 0) {
+                this.unfiltered = this.unindexed;
+                this.filtered = NONE;
+            } else {
+                this.unfiltered = new ObserverReference[this.unindexed.length - filteredCount];
+                this.filtered = new ObserverReference[filteredCount];
+                int u = 0;
+                int f = 0;
+                for (final ObserverReference reference : this.unindexed) {
+                    if (reference.getSenderReference() != null) {
+                        this.filtered[f++] = reference;
+                    } else {
+                        this.unfiltered[u++] = reference;
+                    }
+                }
+            }
+            this.bySender = SenderIndex.create(this.filtered);
+        }
+
+        /**
+         * @return One of the references with a sender criteria, round robin,
+         *         or <code>null</code> if there are none.
+         */
+        @Nullable
+        ObserverReference nextSenderReferenceToSweep()
+        {
+            final ObserverReference[] references = this.filtered;
+            if (references.length == 0) {
+                return null;
+            }
+            final int position = this.sweepPosition++ & Integer.MAX_VALUE;
+            return references[position % references.length];
+        }
+
+        /**
+         * Merges two arrays, each ordered by priority and registration.
+         */
+        @NonNull
+        private static ObserverReference[] merge(@NonNull final ObserverReference[] first,
+                                                 @NonNull final ObserverReference[] second)
+        {
+            if (second.length == 0) {
+                return first;
+            } else if (first.length == 0) {
+                return second;
+            }
+
+            final ObserverReference[] result = new ObserverReference[first.length + second.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < first.length && j < second.length) {
+                result[k++] = first[i].precedes(second[j]) ? first[i++] : second[j++];
+            }
+            while (i < first.length) {
+                result[k++] = first[i++];
+            }
+            while (j < second.length) {
+                result[k++] = second[j++];
+            }
+            return result;
+        }
+    }
+
+    // }}}
+    // {{{ SenderIndex
+
+    /**
+     * An immutable hash table from senders to the references registered for
+     * them.
+     * <p>
+     * It is keyed by the identity hash code of the senders only, so it does
+     * not retain them. References of different senders with the same hash
+     * code share a bucket, so the sender has still to be compared when
+     * dispatching.
+     */
+    static final class SenderIndex
+    {
+        static final SenderIndex EMPTY = new SenderIndex(new int[1], new ObserverReference[1][]);
+
+        private final int[] hashes;
+        private final ObserverReference[][] buckets;
+        private final int mask;
+
+        private SenderIndex(@NonNull final int[] hashes, @NonNull final ObserverReference[][] buckets)
+        {
+            this.hashes = hashes;
+            this.buckets = buckets;
+            this.mask = buckets.length - 1;
+        }
+
+        /**
+         * @param references
+         *            References with a sender criteria, ordered by
+         *            registration
+         */
+        @NonNull
+        static SenderIndex create(@NonNull final ObserverReference[] references)
+        {
+            if (references.length == 0) {
+                return EMPTY;
+            }
+
+            final Map<Integer, List<ObserverReference>> grouped = new HashMap<Integer, List<ObserverReference>>();
+            for (final ObserverReference reference : references) {
+                final Integer hash = reference.getSenderHash();
+                List<ObserverReference> group = grouped.get(hash);
+                if (group == null) {
+                    group = new ArrayList<ObserverReference>();
+                    grouped.put(hash, group);
+                }
+                group.add(reference);
+            }
+
+            // power of two, at most half full
+            final int capacity = Integer.highestOneBit(grouped.size() * 2 - 1) << 1;
+            final int[] hashes = new int[capacity];
+            final ObserverReference[][] buckets = new ObserverReference[capacity][];
+            for (final Map.Entry<Integer, List<ObserverReference>> entry : grouped.entrySet()) {
+                final int hash = entry.getKey();
+                int index = spread(hash) & (capacity - 1);
+                while (buckets[index] != null) {
+                    index = (index + 1) & (capacity - 1);
+                }
+                hashes[index] = hash;
+                buckets[index] = entry.getValue().toArray(new ObserverReference[entry.getValue().size()]);
+            }
+            return new SenderIndex(hashes, buckets);
+        }
+
+        /**
+         * @return The references registered for senders with the same
+         *         identity hash code as the given one.
+         */
+        @NonNull
+        ObserverReference[] get(@NonNull final Object sender)
+        {
+            final int hash = System.identityHashCode(sender);
+            int index = spread(hash) & this.mask;
+            ObserverReference[] bucket;
+            while ((bucket = this.buckets[index]) != null) {
+                if (this.hashes[index] == hash) {
+                    return bucket;
+                }
+                index = (index + 1) & this.mask;
+            }
+            return DispatchSnapshot.NONE;
+        }
+
+        private static int spread(final int hash)
+        {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    // }}}
+    // {{{ ValueIndex
+
+    /**
+     * An immutable index of the references with a
+     * {@link NotificationFilters#equalTo(String, Object) equality filter}, by
+     * the userInfo key and the value they expect. The keys are few, so they
+     * are just walked.
+     */
+    static final class ValueIndex
+    {
+        static final ValueIndex EMPTY = new ValueIndex(new KeyIndex[0]);
+
+        private final KeyIndex[] keys;
+
+        private ValueIndex(@NonNull final KeyIndex[] keys)
+        {
+            this.keys = keys;
+        }
+
+        /**
+         * @param references
+         *            References with an equality filter, ordered by priority
+         *            and registration
+         */
+        @NonNull
+        static ValueIndex create(@NonNull final ObserverReference[] references)
+        {
+            final Map<String, Map<Object, List<ObserverReference>>> grouped =
+                    new HashMap<String, Map<Object, List<ObserverReference>>>();
+            for (final ObserverReference reference : references) {
+                final NotificationFilters.EqualTo filter = (NotificationFilters.EqualTo) reference.getFilter();
+                Map<Object, List<ObserverReference>> byValue = grouped.get(filter.getKey());
+                if (byValue == null) {
+                    byValue = new HashMap<Object, List<ObserverReference>>();
+                    grouped.put(filter.getKey(), byValue);
+                }
+                List<ObserverReference> group = byValue.get(filter.getValue());
+                if (group == null) {
+                    group = new ArrayList<ObserverReference>();
+                    byValue.put(filter.getValue(), group);
+                }
+                group.add(reference);
+            }
+
+            final KeyIndex[] keys = new KeyIndex[grouped.size()];
+            int k = 0;
+            for (final Map.Entry<String, Map<Object, List<ObserverReference>>> entry : grouped.entrySet()) {
+                final Map<Object, ObserverReference[]> byValue = new HashMap<Object, ObserverReference[]>();
+                for (final Map.Entry<Object, List<ObserverReference>> group : entry.getValue().entrySet()) {
+                    final List<ObserverReference> values = group.getValue();
+                    byValue.put(group.getKey(), values.toArray(new ObserverReference[values.size()]));
+                }
+                keys[k++] = new KeyIndex(entry.getKey(), byValue);
+            }
+            return new ValueIndex(keys);
+        }
+
+        /**
+         * @return The references whose filter matches the given notification,
+         *         ordered by priority and registration
+         */
+        @NonNull
+        ObserverReference[] get(@NonNull final Notification notification)
+        {
+            if (this.keys.length == 0) {
+                return DispatchSnapshot.NONE;
+            }
+
+            final Map<String, Object> userInfo = notification.getUserInfo();
+            ObserverReference[] result = DispatchSnapshot.NONE;
+            for (final KeyIndex key : this.keys) {
+                final ObserverReference[] matching = key.byValue.get(
+                        userInfo != null ? userInfo.get(key.key) : null);
+                if (matching != null) {
+                    result = DispatchSnapshot.merge(result, matching);
+                }
+            }
+            return result;
+        }
+    }
+
+    // }}}
+    // {{{ KeyIndex
+
+    /**
+     * The references expecting values for one userInfo key, by the value.
+     */
+    private static final class KeyIndex
+    {
+        @NonNull final String key;
+        @NonNull final Map<Object, ObserverReference[]> byValue;
+
+        KeyIndex(@NonNull final String key, @NonNull final Map<Object, ObserverReference[]> byValue)
+        {
+            this.key = key;
+            this.byValue = byValue;
+        }
+    }
+
+    // }}}
+    // {{{ WeakObserverReference
+
+    private static class WeakObserverReference
+            extends ObserverReference
+    {
+        @NonNull final ReapableReference<Observer> observerReference;
+
+        @Override
+        public Observer get()
+        {
+            return this.observerReference.get();
+        }
+
+        public WeakObserverReference(@NonNull final Observer observer, @Nullable final Object sender,
+                                     @NonNull final ObserverOptions options, final long order,
+                                     @NonNull final DefaultNotificationCenter center)
+        {
+            super(observer, sender, options, order, center);
+            this.observerReference = new ReapableReference<Observer>(observer, this, center.collectedReferences);
+        }
+    }
+
+    // }}}
+    // {{{ StrongObserverReference
+
+    private static class StrongObserverReference
+            extends ObserverReference
+    {
+        // null once cancelled
+        @Nullable private Observer observer;
+
+        @Override
+        public Observer get()
         {
             return observer;
         }
 
-        public StrongObserverReference(@NonNull final Observer observer, @Nullable final Object sender)
+        @Override
+        void release()
+        {
+            this.observer = null;
+        }
+
+        public StrongObserverReference(@NonNull final Observer observer, @Nullable final Object sender,
+                                       @NonNull final ObserverOptions options, final long order,
+                                       @NonNull final DefaultNotificationCenter center)
+        {
+            super(observer, sender, options, order, center);
+            this.observer = observer;
+        }
+    }
+
+    // }}}
+    // {{{ ReapableReference
+
+    /**
+     * A weak reference to an observer or sender, which knows the registration
+     * to remove when it is enqueued after its referent has been collected.
+     */
+    private static class ReapableReference<T>
+            extends WeakReference<T>
+    {
+        @Getter @NonNull final ObserverReference owner;
+
+        @SuppressWarnings("unchecked")
+        public ReapableReference(@NonNull final T referent, @NonNull final ObserverReference owner,
+                                 @NonNull final ReferenceQueue<Object> queue)
+        {
+            super(referent, (ReferenceQueue<? super T>) queue);
+            this.owner = owner;
+        }
+    }
+
+    // }}}
+    // {{{ Delivery
+
+    /**
+     * Calls a single observer, used for observers which are not called on the
+     * posting thread.
+     */
+    private static class Delivery
+            implements Runnable
+    {
+        @NonNull final ObserverReference reference;
+        @NonNull final Observer observer;
+        @NonNull final Notification notification;
+
+        public Delivery(@NonNull final ObserverReference reference, @NonNull final Observer observer,
+                        @NonNull final Notification notification)
         {
+            this.reference = reference;
             this.observer = observer;
-            this.senderReference = sender == null ? null : new WeakReference<Object>(sender);
+            this.notification = notification;
+        }
+
+        @Override
+        public void run()
+        {
+            this.reference.receive(this.observer, this.notification);
+        }
+    }
+
+    // }}}
+    // {{{ DetachedDelivery
+
+    /**
+     * Delivers a detached notification to a registration, used for observers
+     * bound to an executor.
+     */
+    private static class DetachedDelivery
+            implements Runnable
+    {
+        @NonNull final ObserverReference reference;
+        @NonNull final Notification notification;
+
+        public DetachedDelivery(@NonNull final ObserverReference reference, @NonNull final Notification notification)
+        {
+            this.reference = reference;
+            this.notification = notification;
+        }
+
+        @Override
+        public void run()
+        {
+            this.reference.deliverDetached(this.notification);
+        }
+    }
+
+    // }}}
+    // {{{ DefaultAsyncExecutorHolder
+
+    /**
+     * Lazily creates the executor shared by all centers without an explicit
+     * async executor. Its threads are daemons, so they do not keep the VM
+     * alive.
+     */
+    static class DefaultAsyncExecutorHolder
+    {
+        static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+            final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "NotificationCenter-async-"
+                        + this.threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // }}}
+    // {{{ ObserverThreadExecutorHolder
+
+    /**
+     * Lazily creates the executor for {@link DeliveryMode#VIRTUAL_THREAD}: a
+     * virtual thread per task, if the VM supports them, otherwise the shared
+     * pool of daemon threads.
+     */
+    private static class ObserverThreadExecutorHolder
+    {
+        static final ExecutorService EXECUTOR = createExecutor();
+
+        @NonNull
+        private static ExecutorService createExecutor()
+        {
+            try {
+                final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (final Exception ex) {
+                // no (enabled) virtual threads in this VM
+                return DefaultAsyncExecutorHolder.EXECUTOR;
+            }
         }
     }
 
     // }}}
 
-}
+}
\ No newline at end of file
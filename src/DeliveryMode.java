@@ -0,0 +1,50 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+/**
+ * Defines on which thread an observer receives its notifications, see
+ * {@link ObserverOptions#getDeliveryMode()}.
+ *
+ */
+public enum DeliveryMode
+{
+    /**
+     * The observer is called on the thread posting the notification, one
+     * observer after the other. This is the default.
+     */
+    POSTING_THREAD,
+
+    /**
+     * The observer is called on a thread of its own, concurrently to the other
+     * observers of the notification. The posting thread waits until all these
+     * observers have returned.
+     * <p>
+     * This is meant for observers doing blocking I/O: If the VM supports
+     * virtual threads, each call runs on a new virtual thread, otherwise a
+     * shared pool of daemon threads is used.
+     */
+    VIRTUAL_THREAD;
+}
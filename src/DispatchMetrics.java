@@ -0,0 +1,374 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nullable;
+
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * Records the dispatch metrics of a {@link DefaultNotificationCenter} while
+ * they are enabled (see {@link DefaultNotificationCenter#setMetricsEnabled(boolean)}).
+ * <p>
+ * The counters per name are indexed by the id of the
+ * {@link NotificationName} and striped by thread, so concurrent posters
+ * rarely update the same cache line. Posts of names which have never been
+ * interned, e.g. only observed for any name or by a pattern, are counted by
+ * the name string instead, up to {@value #MAX_UNINTERNED_NAMES} names, and
+ * the posts of further names together. The latencies are recorded per
+ * registration in lock free histograms.
+ *
+ */
+final class DispatchMetrics
+{
+
+    // {{{ constants
+
+    // the number of stripes of the counters, a power of two
+    private static final int STRIPES = Math.min(16,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+
+
+    // the names not interned which are counted separately, before the others are counted together
+    static final int MAX_UNINTERNED_NAMES = 1024;
+
+    // }}}
+    // {{{ variables
+
+    private final StripedCounters postCounts = new StripedCounters();
+    private final StripedCounters deliveryCounts = new StripedCounters();
+    private final StripedCounters maxFanOuts = new StripedCounters();
+    // the posts of names without an interned instance
+    private final ConcurrentHashMap<String, NameCounters> uninterned = new ConcurrentHashMap<String, NameCounters>();
+    // the posts of the names not interned beyond the maximum
+    private final NameCounters otherNames = new NameCounters();
+
+    private final ConcurrentLinkedQueue<LatencyRecorder> recorders = new ConcurrentLinkedQueue<LatencyRecorder>();
+
+    // }}}
+    // {{{ recordPost
+
+    /**
+     * Counts a post of the given name, which was delivered to the given number
+     * of observers.
+     */
+    void recordPost(@NonNull final NotificationName notificationName, final int fanOut)
+    {
+        final int id = notificationName.getId();
+        final int stripe = stripe();
+        this.postCounts.add(id, stripe, 1);
+        this.deliveryCounts.add(id, stripe, fanOut);
+        this.maxFanOuts.max(id, stripe, fanOut);
+    }
+
+    /**
+     * Counts a post of the given name, which has no interned instance, see
+     * {@link #recordPost(NotificationName, int)}. Once
+     * {@value #MAX_UNINTERNED_NAMES} names are counted, the posts of new
+     * names are counted together, so posting names built from unbounded
+     * data does not grow the metrics without bounds.
+     */
+    void recordPost(@NonNull final String notificationName, final int fanOut)
+    {
+        NameCounters counters = this.uninterned.get(notificationName);
+        if (counters == null) {
+            if (this.uninterned.size() >= MAX_UNINTERNED_NAMES) {
+                this.otherNames.record(fanOut);
+                return;
+            }
+            final NameCounters created = new NameCounters();
+            counters = this.uninterned.putIfAbsent(notificationName, created);
+            if (counters == null) {
+                counters = created;
+            }
+        }
+        counters.record(fanOut);
+    }
+
+    // }}}
+    // {{{ getRecorder
+
+    /**
+     * @return The latency recorder of the given registration
+     */
+    @NonNull
+    LatencyRecorder getRecorder(@NonNull final DefaultNotificationCenter.ObserverReference reference)
+    {
+        final LatencyRecorder recorder = reference.getLatencyRecorder();
+        if (recorder != null && recorder.metrics == this) {
+            return recorder;
+        }
+
+        synchronized (reference) {
+            LatencyRecorder current = reference.getLatencyRecorder();
+            if (current == null || current.metrics != this) {
+                current = new LatencyRecorder(this, reference);
+                reference.setLatencyRecorder(current);
+                this.recorders.add(current);
+            }
+            return current;
+        }
+    }
+
+    // }}}
+    // {{{ snapshot
+
+    @NonNull
+    MetricsSnapshot snapshot()
+    {
+        final Map<String, MetricsSnapshot.NameMetrics> names = new HashMap<String, MetricsSnapshot.NameMetrics>();
+        for (final NotificationName notificationName : NotificationName.all()) {
+            final int id = notificationName.getId();
+            long postCount = this.postCounts.sum(id);
+            long deliveryCount = this.deliveryCounts.sum(id);
+            long maxFanOut = this.maxFanOuts.max(id);
+            // the name may have been interned after some of its posts
+            final NameCounters counters = this.uninterned.get(notificationName.getName());
+            if (counters != null) {
+                postCount += counters.postCount.get();
+                deliveryCount += counters.deliveryCount.get();
+                maxFanOut = Math.max(maxFanOut, counters.maxFanOut.get());
+            }
+            if (postCount > 0) {
+                names.put(notificationName.getName(), new MetricsSnapshot.NameMetrics(notificationName.getName(),
+                        postCount, deliveryCount, maxFanOut));
+            }
+        }
+        for (final Map.Entry<String, NameCounters> entry : this.uninterned.entrySet()) {
+            if (!names.containsKey(entry.getKey())) {
+                final NameCounters counters = entry.getValue();
+                names.put(entry.getKey(), new MetricsSnapshot.NameMetrics(entry.getKey(),
+                        counters.postCount.get(), counters.deliveryCount.get(), counters.maxFanOut.get()));
+            }
+        }
+
+        final List<MetricsSnapshot.ObserverMetrics> observers = new ArrayList<MetricsSnapshot.ObserverMetrics>();
+        for (final LatencyRecorder recorder : this.recorders) {
+            final DefaultNotificationCenter.ObserverReference reference = recorder.reference;
+            if (reference.isCancelled()) {
+                this.recorders.remove(recorder);
+                continue;
+            }
+            final DefaultNotificationCenter.ObserverList observerList = reference.getList();
+            final NotificationName notificationName = observerList != null ? observerList.getName() : null;
+            observers.add(new MetricsSnapshot.ObserverMetrics(reference, reference.get(),
+                    notificationName != null ? notificationName.getName() : null, recorder.snapshot()));
+        }
+
+        final long otherPostCount = this.otherNames.postCount.get();
+        final MetricsSnapshot.NameMetrics otherNames = otherPostCount == 0 ? null
+                : new MetricsSnapshot.NameMetrics(MetricsSnapshot.OTHER_NAMES, otherPostCount,
+                        this.otherNames.deliveryCount.get(), this.otherNames.maxFanOut.get());
+
+        return new MetricsSnapshot(names, otherNames, observers);
+    }
+
+    // }}}
+    // {{{ stripe
+
+    private static int stripe()
+    {
+        return (int) Thread.currentThread().getId() & (STRIPES - 1);
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Internal Helper Classes
+     * **************************************************************************
+     */
+
+    // {{{ StripedCounters
+
+    /**
+     * Counters by name id. They are allocated in chunks of ids, which are
+     * never copied, so growing does not lose concurrent updates. Within a
+     * chunk, the stripes are stored one after the other.
+     */
+    static final class StripedCounters
+    {
+        private static final int CHUNK_SIZE = 256;
+
+        private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+
+        void add(final int id, final int stripe, final long delta)
+        {
+            chunk(id).addAndGet(stripe * CHUNK_SIZE + id % CHUNK_SIZE, delta);
+        }
+
+        void max(final int id, final int stripe, final long value)
+        {
+            final AtomicLongArray chunk = chunk(id);
+            final int index = stripe * CHUNK_SIZE + id % CHUNK_SIZE;
+            long current;
+            while ((current = chunk.get(index)) < value) {
+                if (chunk.compareAndSet(index, current, value)) {
+                    return;
+                }
+            }
+        }
+
+        long sum(final int id)
+        {
+            final AtomicLongArray chunk = find(id);
+            long sum = 0;
+            if (chunk != null) {
+                for (int stripe = 0; stripe < STRIPES; stripe++) {
+                    sum += chunk.get(stripe * CHUNK_SIZE + id % CHUNK_SIZE);
+                }
+            }
+            return sum;
+        }
+
+        long max(final int id)
+        {
+            final AtomicLongArray chunk = find(id);
+            long max = 0;
+            if (chunk != null) {
+                for (int stripe = 0; stripe < STRIPES; stripe++) {
+                    max = Math.max(max, chunk.get(stripe * CHUNK_SIZE + id % CHUNK_SIZE));
+                }
+            }
+            return max;
+        }
+
+        @Nullable
+        private AtomicLongArray find(final int id)
+        {
+            final AtomicLongArray[] chunks = this.chunks;
+            final int index = id / CHUNK_SIZE;
+            return index < chunks.length ? chunks[index] : null;
+        }
+
+        @NonNull
+        private AtomicLongArray chunk(final int id)
+        {
+            final AtomicLongArray chunk = find(id);
+            return chunk != null ? chunk : createChunk(id / CHUNK_SIZE);
+        }
+
+        @NonNull
+        private synchronized AtomicLongArray createChunk(final int index)
+        {
+            AtomicLongArray[] chunks = this.chunks;
+            if (index >= chunks.length) {
+                final AtomicLongArray[] grown = new AtomicLongArray[Math.max(chunks.length * 2, index + 1)];
+                System.arraycopy(chunks, 0, grown, 0, chunks.length);
+                chunks = grown;
+            }
+            if (chunks[index] == null) {
+                chunks[index] = new AtomicLongArray(STRIPES * CHUNK_SIZE);
+            }
+            this.chunks = chunks; // publishes the new chunk
+            return chunks[index];
+        }
+    }
+
+    // }}}
+    // {{{ NameCounters
+
+    /**
+     * The counters of a name without an interned instance.
+     */
+    private static final class NameCounters
+    {
+        final AtomicLong postCount = new AtomicLong();
+        final AtomicLong deliveryCount = new AtomicLong();
+        final AtomicLong maxFanOut = new AtomicLong();
+
+        void record(final int fanOut)
+        {
+            this.postCount.incrementAndGet();
+            this.deliveryCount.addAndGet(fanOut);
+            long current;
+            while ((current = this.maxFanOut.get()) < fanOut) {
+                if (this.maxFanOut.compareAndSet(current, fanOut)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // }}}
+    // {{{ LatencyRecorder
+
+    /**
+     * The latencies of a single registration, see {@link LatencyHistogram}.
+     */
+    static final class LatencyRecorder
+    {
+        @NonNull final DispatchMetrics metrics;
+        @NonNull final DefaultNotificationCenter.ObserverReference reference;
+
+        private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.BUCKETS);
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        LatencyRecorder(@NonNull final DispatchMetrics metrics,
+                        @NonNull final DefaultNotificationCenter.ObserverReference reference)
+        {
+            this.metrics = metrics;
+            this.reference = reference;
+        }
+
+        void record(final long nanos)
+        {
+            this.counts.incrementAndGet(LatencyHistogram.bucket(nanos));
+            this.sum.addAndGet(nanos);
+            long current;
+            while ((current = this.max.get()) < nanos) {
+                if (this.max.compareAndSet(current, nanos)) {
+                    return;
+                }
+            }
+        }
+
+        @NonNull
+        LatencyHistogram snapshot()
+        {
+            final long[] counts = new long[LatencyHistogram.BUCKETS];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.counts.get(i);
+            }
+            return new LatencyHistogram(counts, this.sum.get(), this.max.get());
+        }
+    }
+
+    // }}}
+
+}
@@ -0,0 +1,185 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * An immutable histogram of observer latencies in nanoseconds, taken from
+ * the metrics of a {@link DefaultNotificationCenter} (see
+ * {@link MetricsSnapshot}).
+ * <p>
+ * The buckets are log-linear: every power of two is split into
+ * {@value #SUB_BUCKETS} buckets of equal width, so recording is a few bit
+ * operations and an increment, and the values derived from the histogram are
+ * accurate to 12.5%. Values above about 18 minutes are counted in the last
+ * bucket.
+ *
+ */
+public final class LatencyHistogram
+{
+
+    // {{{ constants
+
+    static final int SUB_BUCKETS = 8;
+    private static final int SUB_BUCKET_BITS = 3;
+
+    // the highest power of two with buckets of its own
+    private static final int MAX_EXPONENT = 40;
+
+    /** the number of buckets */
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    // }}}
+    // {{{ variables
+
+    @NonNull private final long[] counts;
+
+    /** the number of recorded values */
+    @Getter private final long count;
+    /** the sum of the recorded values */
+    @Getter private final long sum;
+    /** the highest recorded value */
+    @Getter private final long max;
+
+    // }}}
+    // {{{ constructor
+
+    LatencyHistogram(@NonNull final long[] counts, final long sum, final long max)
+    {
+        this.counts = counts;
+        long count = 0;
+        for (final long bucketCount : counts) {
+            count += bucketCount;
+        }
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    // }}}
+    // {{{ getMean
+
+    /**
+     * @return The average of the recorded values, or 0 if there are none
+     */
+    public double getMean()
+    {
+        return this.count == 0 ? 0 : (double) this.sum / this.count;
+    }
+
+    // }}}
+    // {{{ getPercentile
+
+    /**
+     * @param percentile
+     *            Between 0 and 100
+     * @return The upper bound of the bucket containing the value at the given
+     *         percentile, at most the highest recorded value, or 0 if there
+     *         are no values
+     */
+    public long getPercentile(final double percentile)
+    {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile out of range: " + percentile);
+        }
+        if (this.count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+        long seen = 0;
+        for (int bucket = 0; bucket < this.counts.length; bucket++) {
+            seen += this.counts[bucket];
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    // }}}
+    // {{{ bucket
+
+    /**
+     * @return The index of the bucket of the given value
+     */
+    static int bucket(final long value)
+    {
+        if (value < SUB_BUCKETS) {
+            return value < 0 ? 0 : (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // }}}
+    // {{{ lowerBound
+
+    /**
+     * @return The lowest value counted in the given bucket
+     */
+    static long lowerBound(final int bucket)
+    {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    // }}}
+    // {{{ upperBound
+
+    /**
+     * @return The highest value counted in the given bucket
+     */
+    static long upperBound(final int bucket)
+    {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(bucket + 1) - 1;
+    }
+
+    // }}}
+    // {{{ toString
+
+    @Override
+    public String toString()
+    {
+        return "LatencyHistogram(count=" + this.count + ", mean=" + (long) getMean() + ", p50="
+                + getPercentile(50) + ", p99=" + getPercentile(99) + ", max=" + this.max + ")";
+    }
+
+    // }}}
+
+}
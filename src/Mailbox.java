@@ -0,0 +1,307 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * A bounded queue of the notifications for a single observer, which are
+ * delivered asynchronously, one after the other, on the executor of the
+ * registration (see {@link ObserverOptions#getExecutor()}) or else the async
+ * executor of the center (see {@link DefaultNotificationCenter#getAsyncExecutor()}). The
+ * posting thread does not wait for the observer, and a slow observer cannot
+ * build up more than {@link #getCapacity()} notifications: what happens then
+ * is defined by the {@link OverflowPolicy}.
+ * <p>
+ * A registration gets a mailbox if its {@link ObserverOptions} have a
+ * mailbox capacity; it can be obtained by
+ * {@link DefaultNotificationCenter#getMailbox(Subscription)}.
+ *
+ */
+public final class Mailbox
+        implements Runnable
+{
+
+    // {{{ constants
+
+    // the number of notifications delivered before the executor is released
+    private static final int BATCH_SIZE = 64;
+
+    // }}}
+    // {{{ variables
+
+    @Getter private final int capacity;
+    @Getter @NonNull private final OverflowPolicy overflowPolicy;
+    /** the userInfo key of the values to coalesce on, or null for name and sender */
+    @Nullable private final String coalescingKey;
+
+    @NonNull private final DefaultNotificationCenter.ObserverReference reference;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = this.lock.newCondition();
+
+    // a ring of notifications, guarded by the lock
+    @NonNull private final Notification[] notifications;
+    private int head;
+    private int size;
+    // whether a task delivers the notifications, guarded by the lock
+    private boolean delivering;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    // }}}
+    // {{{ constructor
+
+    Mailbox(@NonNull final DefaultNotificationCenter.ObserverReference reference,
+            @NonNull final ObserverOptions options)
+    {
+        this.capacity = options.getMailboxCapacity();
+        this.overflowPolicy = options.getOverflowPolicy();
+        this.coalescingKey = options.getCoalescingKey();
+        this.reference = reference;
+        this.notifications = new Notification[this.capacity];
+    }
+
+    // }}}
+    // {{{ getSize
+
+    /**
+     * @return The number of notifications waiting for delivery
+     */
+    public int getSize()
+    {
+        this.lock.lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // }}}
+    // {{{ getDroppedCount
+
+    /**
+     * @return The number of notifications which were dropped because the
+     *         mailbox was full, or replaced by coalescing
+     */
+    public long getDroppedCount()
+    {
+        return this.droppedCount.get();
+    }
+
+    // }}}
+    // {{{ offer
+
+    /**
+     * Adds the notification for delivery, applying the overflow policy.
+     *
+     * @throws IllegalStateException
+     *             if the mailbox is full and the policy is
+     *             {@link OverflowPolicy#FAIL}
+     */
+    void offer(@NonNull final Notification notification)
+    {
+        final Notification kept = DefaultNotificationCenter.detach(notification);
+
+        final boolean startDelivery;
+        this.lock.lock();
+        try {
+            if (this.overflowPolicy == OverflowPolicy.COALESCE && replace(kept)) {
+                this.droppedCount.incrementAndGet();
+                return;
+            }
+
+            if (this.size == this.capacity) {
+                switch (this.overflowPolicy) {
+                case BLOCK:
+                    while (this.size == this.capacity) {
+                        try {
+                            this.notFull.await();
+                        } catch (final InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            this.droppedCount.incrementAndGet();
+                            return;
+                        }
+                    }
+                    break;
+                case DROP_NEWEST:
+                    this.droppedCount.incrementAndGet();
+                    return;
+                case FAIL:
+                    this.droppedCount.incrementAndGet();
+                    throw new IllegalStateException("Mailbox of " + this.reference.get() + " is full");
+                default:
+                    poll(); // drop the oldest
+                    this.droppedCount.incrementAndGet();
+                    break;
+                }
+            }
+
+            this.notifications[(this.head + this.size) % this.capacity] = kept;
+            this.size++;
+
+            startDelivery = !this.delivering;
+            this.delivering = true;
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (startDelivery) {
+            submit();
+        }
+    }
+
+    // }}}
+    // {{{ run
+
+    /**
+     * Delivers the notifications in the mailbox. After a batch, the executor
+     * is released and the delivery continues with a new task.
+     */
+    @Override
+    public void run()
+    {
+        boolean idle = false;
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                final Notification notification;
+                this.lock.lock();
+                try {
+                    notification = poll();
+                    if (notification == null) {
+                        this.delivering = false;
+                        idle = true;
+                        return;
+                    }
+                } finally {
+                    this.lock.unlock();
+                }
+
+                this.reference.deliverDetached(notification);
+            }
+        } finally {
+            if (!idle) {
+                // the batch is full, or a failure escaped: a new task delivers the rest
+                submit();
+            }
+        }
+    }
+
+    // }}}
+    // {{{ submit
+
+    /**
+     * Submits this mailbox for delivery. If the executor rejects it, e.g.
+     * because it is shut down, the next offer tries again.
+     */
+    private void submit()
+    {
+        boolean submitted = false;
+        try {
+            this.reference.getDetachedExecutor().execute(this);
+            submitted = true;
+        } finally {
+            if (!submitted) {
+                this.lock.lock();
+                try {
+                    this.delivering = false;
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+        }
+    }
+
+    // }}}
+    // {{{ poll
+
+    /**
+     * Removes the oldest notification. Guarded by the lock.
+     */
+    @Nullable
+    private Notification poll()
+    {
+        if (this.size == 0) {
+            return null;
+        }
+        final Notification notification = this.notifications[this.head];
+        this.notifications[this.head] = null;
+        this.head = (this.head + 1) % this.capacity;
+        this.size--;
+        this.notFull.signal();
+        return notification;
+    }
+
+    // }}}
+    // {{{ replace
+
+    /**
+     * Replaces the notification coalescing with the given one. Guarded by the
+     * lock.
+     *
+     * @return <code>false</code> if there is none
+     */
+    private boolean replace(@NonNull final Notification notification)
+    {
+        for (int i = 0; i < this.size; i++) {
+            final int index = (this.head + i) % this.capacity;
+            if (coalesces(this.notifications[index], notification)) {
+                this.notifications[index] = notification;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // }}}
+    // {{{ coalesces
+
+    private boolean coalesces(@NonNull final Notification pending, @NonNull final Notification notification)
+    {
+        if (this.coalescingKey == null) {
+            return Coalescing.ON_NAME_AND_SENDER.matches(pending, notification);
+        }
+
+        final Object key = notification.getUserInfo().get(this.coalescingKey);
+        final Object pendingKey = pending.getUserInfo().get(this.coalescingKey);
+        return pending.getName().equals(notification.getName())
+                && (key == null ? pendingKey == null : key.equals(pendingKey));
+    }
+
+    // }}}
+
+}
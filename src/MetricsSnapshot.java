@@ -0,0 +1,176 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+// }}}
+
+/**
+ * The dispatch metrics of a {@link DefaultNotificationCenter}, recorded since
+ * they were enabled, see {@link DefaultNotificationCenter#getMetrics()}.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * center.setMetricsEnabled(true);
+ * ...
+ * for (ObserverMetrics observer : center.getMetrics().getObservers()) {
+ *     if (observer.getLatency().getPercentile(99) &gt; TimeUnit.MILLISECONDS.toNanos(1)) {
+ *         log.warn("Slow observer " + observer.getObserver() + " for " + observer.getNotificationName());
+ *     }
+ * }
+ * </pre>
+ *
+ */
+public final class MetricsSnapshot
+{
+
+    // {{{ constants
+
+    /** the name of the {@link #getOtherNames() metrics of the other names} */
+    public static final String OTHER_NAMES = "(other names)";
+
+    // }}}
+    // {{{ variables
+
+    /** the metrics of the posted names, by name */
+    @Getter @NonNull private final Map<String, NameMetrics> names;
+
+    /**
+     * the metrics of the posts of names which were never interned (see
+     * {@link NotificationName}), once too many of them were posted to count
+     * them by name, or <code>null</code> if there were none
+     */
+    @Getter @Nullable private final NameMetrics otherNames;
+
+    /** the metrics of the registrations which have been called */
+    @Getter @NonNull private final List<ObserverMetrics> observers;
+
+    // }}}
+    // {{{ constructor
+
+    MetricsSnapshot(@NonNull final Map<String, NameMetrics> names, @Nullable final NameMetrics otherNames,
+                    @NonNull final List<ObserverMetrics> observers)
+    {
+        this.names = Collections.unmodifiableMap(names);
+        this.otherNames = otherNames;
+        this.observers = Collections.unmodifiableList(observers);
+    }
+
+    // }}}
+    // {{{ getName
+
+    /**
+     * @return The metrics of the given name, or <code>null</code> if it has
+     *         not been posted
+     */
+    @Nullable
+    public NameMetrics getName(@NonNull final String notificationName)
+    {
+        return this.names.get(notificationName);
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Internal Helper Classes
+     * **************************************************************************
+     */
+
+    // {{{ NameMetrics
+
+    /**
+     * The posts of a notification name.
+     */
+    @ToString
+    public static final class NameMetrics
+    {
+        @Getter @NonNull private final String name;
+        /** the number of posts */
+        @Getter private final long postCount;
+        /** the number of observers called, summed up over all posts */
+        @Getter private final long deliveryCount;
+        /** the highest number of observers called by a single post */
+        @Getter private final long maxFanOut;
+
+        NameMetrics(@NonNull final String name, final long postCount, final long deliveryCount,
+                    final long maxFanOut)
+        {
+            this.name = name;
+            this.postCount = postCount;
+            this.deliveryCount = deliveryCount;
+            this.maxFanOut = maxFanOut;
+        }
+
+        /**
+         * @return The average number of observers called per post
+         */
+        public double getAverageFanOut()
+        {
+            return this.postCount == 0 ? 0 : (double) this.deliveryCount / this.postCount;
+        }
+    }
+
+    // }}}
+    // {{{ ObserverMetrics
+
+    /**
+     * The calls of a single registration.
+     */
+    @ToString
+    public static final class ObserverMetrics
+    {
+        @Getter @NonNull private final Subscription subscription;
+        /** the observer, or <code>null</code> if it has been collected */
+        @Getter @Nullable private final Observer observer;
+        /** the observed name or pattern, or <code>null</code> for any name */
+        @Getter @Nullable private final String notificationName;
+        /** the time the observer took per notification */
+        @Getter @NonNull private final LatencyHistogram latency;
+
+        ObserverMetrics(@NonNull final Subscription subscription, @Nullable final Observer observer,
+                        @Nullable final String notificationName, @NonNull final LatencyHistogram latency)
+        {
+            this.subscription = subscription;
+            this.observer = observer;
+            this.notificationName = notificationName;
+            this.latency = latency;
+        }
+    }
+
+    // }}}
+
+}
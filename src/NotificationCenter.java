@@ -62,9 +62,11 @@ public interface NotificationCenter
      *            The object which should be set in the notification in order to
      *            receive the
      *            notification. The specified object is not retained.
+     * @return The subscription, which can be cancelled to remove only this
+     *         registration.
      */
-    public abstract void addObserver(@NonNull final Observer observer, @Nullable final String notificationName,
-                                     @Nullable final Object notificationSender);
+    public abstract Subscription addObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                                             @Nullable final Object notificationSender);
 
     /**
      * Removes all the entries containing the given observer from the dispatch
@@ -0,0 +1,153 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * A handle for posting notifications with a fixed name, obtained by
+ * {@link DefaultNotificationCenter#channel(NotificationName)}.
+ * <p>
+ * The channel keeps the observer list of its name, so posting skips the
+ * lookup in the dispatch table. The list and its dispatch snapshot are
+ * validated on every post, so observers added or removed afterwards are
+ * respected.
+ *
+ */
+public class NotificationChannel
+{
+
+    // {{{ variables
+
+    @NonNull private final DefaultNotificationCenter center;
+    @Getter @NonNull private final NotificationName name;
+
+    @Nullable private volatile DefaultNotificationCenter.ObserverList observerList;
+
+    // }}}
+    // {{{ constructor
+
+    NotificationChannel(@NonNull final DefaultNotificationCenter center, @NonNull final NotificationName name)
+    {
+        this.center = center;
+        this.name = name;
+    }
+
+    // }}}
+    // {{{ hasObservers
+
+    /**
+     * Checks cheaply, if there are observers for the notifications of this
+     * channel, so producers can skip building them otherwise.
+     *
+     * @return <code>false</code> if posting would not reach any observer.
+     *         Observers which are only weakly referenced might be counted
+     *         although they are already gone.
+     */
+    public boolean hasObservers()
+    {
+        final DefaultNotificationCenter.ObserverReference[] references =
+                this.center.getSnapshot(this.name, getObserverList()).all;
+        // cancelled registrations stay in the lists until they are compacted
+        for (final DefaultNotificationCenter.ObserverReference reference : references) {
+            if (!reference.isCancelled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // }}}
+    // {{{ post(Object,Map)
+
+    /**
+     * Creates a new notification with the name of this channel and sends it
+     * to the observers.
+     *
+     * @param notificationSender
+     *            The object posting the notification.
+     * @param userInfo
+     *            Information about the the notification. May be null. Must not
+     *            be changed after posting.
+     */
+    public void post(@Nullable final Object notificationSender, @Nullable final Map<String, Object> userInfo)
+    {
+        final DefaultNotification notification = DefaultNotification.builder().name(this.name.getName())
+                .object(notificationSender).userInfo(userInfo).build();
+        this.center.dispatch(this.name, getObserverList(), notification);
+    }
+
+    // }}}
+    // {{{ post(Object)
+
+    /**
+     * see {@link #post(Object, Map)}
+     */
+    public void post(@Nullable final Object notificationSender)
+    {
+        post(notificationSender, null);
+    }
+
+    // }}}
+    // {{{ post()
+
+    /**
+     * see {@link #post(Object, Map)}
+     */
+    public void post()
+    {
+        post(null);
+    }
+
+    // }}}
+    // {{{ getObserverList
+
+    /**
+     * @return The current list of the name, which is only looked up again if
+     *         the cached one was dropped from the dispatch table.
+     */
+    @Nullable
+    private DefaultNotificationCenter.ObserverList getObserverList()
+    {
+        DefaultNotificationCenter.ObserverList observerList = this.observerList;
+        if (observerList == null || observerList.isRetired()) {
+            observerList = this.center.observers.get(this.name);
+            this.observerList = observerList;
+        }
+        return observerList;
+    }
+
+    // }}}
+
+}
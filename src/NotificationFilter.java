@@ -0,0 +1,62 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * A condition on the notifications an observer receives, in addition to the
+ * name and sender, set by {@link ObserverOptions#getFilter()}.
+ * <p>
+ * Filters comparing a userInfo value, created by
+ * {@link NotificationFilters#equalTo(String, Object)}, are indexed by the
+ * {@link DefaultNotificationCenter}: posting looks up the observers for the
+ * value of the notification, and does not visit the observers waiting for
+ * other values. Other filters, like
+ * {@link NotificationFilters#between(String, Comparable, Comparable)} or
+ * custom ones, are evaluated for each notification before calling the
+ * observer:
+ *
+ * <pre>
+ * center.addObserver(observer, "ORDER_FILLED", null, ObserverOptions.builder()
+ *         .filter(NotificationFilters.equalTo("region", "eu")).build());
+ *
+ * center.addObserver(observer, "ORDER_FILLED", null, ObserverOptions.builder()
+ *         .filter(notification -&gt; notification.getObject() instanceof Order).build());
+ * </pre>
+ *
+ */
+public interface NotificationFilter
+{
+    /**
+     * @return <code>true</code> if the observer should receive the given
+     *         notification
+     */
+    public abstract boolean matches(@NonNull final Notification notification);
+}
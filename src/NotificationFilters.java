@@ -0,0 +1,172 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * Creates the common {@link NotificationFilter}s.
+ *
+ */
+public final class NotificationFilters
+{
+
+    // {{{ constructor
+
+    private NotificationFilters()
+    {
+    }
+
+    // }}}
+    // {{{ equalTo
+
+    /**
+     * @return A filter for the notifications with the given userInfo value,
+     *         compared by {@link Object#equals(Object)}. A <code>null</code>
+     *         value matches the notifications without the key, too.
+     */
+    @NonNull
+    public static NotificationFilter equalTo(@NonNull final String key, @Nullable final Object value)
+    {
+        return new EqualTo(key, value);
+    }
+
+    // }}}
+    // {{{ between
+
+    /**
+     * @return A filter for the notifications with a userInfo value of the
+     *         type of the bounds within the given bounds, inclusive. A
+     *         <code>null</code> bound is unbounded.
+     */
+    @NonNull
+    public static <T extends Comparable<? super T>> NotificationFilter between(@NonNull final String key,
+                                                                             @Nullable final T min,
+                                                                             @Nullable final T max)
+    {
+        return new Between<T>(key, min, max);
+    }
+
+    // }}}
+    // {{{ getValue
+
+    @Nullable
+    static Object getValue(@NonNull final Notification notification, @NonNull final String key)
+    {
+        final Map<String, Object> userInfo = notification.getUserInfo();
+        return userInfo != null ? userInfo.get(key) : null;
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Internal Helper Classes
+     * **************************************************************************
+     */
+
+    // {{{ EqualTo
+
+    /**
+     * The filter for a userInfo value, which is indexed by the center.
+     */
+    static final class EqualTo
+            implements NotificationFilter
+    {
+        @Getter @NonNull private final String key;
+        @Getter @Nullable private final Object value;
+
+        EqualTo(@NonNull final String key, @Nullable final Object value)
+        {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public boolean matches(@NonNull final Notification notification)
+        {
+            final Object actual = NotificationFilters.getValue(notification, this.key);
+            return this.value == null ? actual == null : this.value.equals(actual);
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.key + " == " + this.value;
+        }
+    }
+
+    // }}}
+    // {{{ Between
+
+    private static final class Between<T extends Comparable<? super T>>
+            implements NotificationFilter
+    {
+        @NonNull private final String key;
+        @Nullable private final T min;
+        @Nullable private final T max;
+
+        // the type of the compared values
+        @Nullable private final Class<?> type;
+
+        Between(@NonNull final String key, @Nullable final T min, @Nullable final T max)
+        {
+            this.key = key;
+            this.min = min;
+            this.max = max;
+            this.type = min != null ? min.getClass() : max != null ? max.getClass() : null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean matches(@NonNull final Notification notification)
+        {
+            final Object actual = NotificationFilters.getValue(notification, this.key);
+            if (actual == null || (this.type != null && !this.type.isInstance(actual))) {
+                return false;
+            }
+            final T value = (T) actual;
+            return (this.min == null || this.min.compareTo(value) <= 0)
+                    && (this.max == null || this.max.compareTo(value) >= 0);
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.min + " <= " + this.key + " <= " + this.max;
+        }
+    }
+
+    // }}}
+
+}
@@ -0,0 +1,167 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * An interned notification name.
+ * <p>
+ * There is exactly one instance per name, which carries a small, dense
+ * integer id. A {@link DefaultNotificationCenter} uses the id to find the
+ * observers of a name by an array access instead of hashing the name string.
+ * Obtain the instance once and keep it, e.g. in a constant:
+ *
+ * <pre>
+ * static final NotificationName ORDER_FILLED = NotificationName.of("ORDER_FILLED");
+ *
+ * center.postNotification(ORDER_FILLED, this);
+ * </pre>
+ *
+ * Names are never released, so they should not be built from unbounded
+ * data.
+ * <p>
+ * Names can be hierarchical, with segments separated by dots, like
+ * <code>orders.eu.filled</code>. A name with a <code>*</code> segment,
+ * matching exactly one segment, or a <code>#</code> segment, matching any
+ * number of segments, is a pattern: observers registered for
+ * <code>orders.*.filled</code> or <code>orders.#</code> receive the
+ * notifications of all matching names.
+ *
+ */
+public final class NotificationName
+{
+
+    // {{{ variables
+
+    private static final ConcurrentHashMap<String, NotificationName> names = new ConcurrentHashMap<String, NotificationName>();
+
+    private static int nextId = 0; // guarded by names
+
+    @Getter @NonNull private final String name;
+    @Getter private final int id;
+    /** whether the name contains a wildcard segment */
+    @Getter private final boolean pattern;
+
+    // }}}
+    // {{{ constructor
+
+    private NotificationName(@NonNull final String name, final int id)
+    {
+        this.name = name;
+        this.id = id;
+        this.pattern = isPattern(name);
+    }
+
+    // }}}
+    // {{{ of
+
+    /**
+     * @return The unique instance for the given name.
+     */
+    @NonNull
+    public static NotificationName of(@NonNull final String name)
+    {
+        final NotificationName existing = names.get(name);
+        if (existing != null) {
+            return existing;
+        }
+
+        synchronized (names) { // keeps the ids dense
+            NotificationName notificationName = names.get(name);
+            if (notificationName == null) {
+                notificationName = new NotificationName(name, nextId++);
+                names.put(name, notificationName);
+            }
+            return notificationName;
+        }
+    }
+
+    // }}}
+    // {{{ find
+
+    /**
+     * @return The instance for the given name, or <code>null</code> if none
+     *         has been created yet.
+     */
+    @Nullable
+    static NotificationName find(@NonNull final String name)
+    {
+        return names.get(name);
+    }
+
+    // }}}
+    // {{{ all
+
+    /**
+     * @return All instances created so far
+     */
+    @NonNull
+    static Collection<NotificationName> all()
+    {
+        return names.values();
+    }
+
+    // }}}
+    // {{{ isPattern(String)
+
+    private static boolean isPattern(@NonNull final String name)
+    {
+        int start = 0;
+        while (start <= name.length()) {
+            int end = name.indexOf('.', start);
+            if (end < 0) {
+                end = name.length();
+            }
+            if (end - start == 1 && (name.charAt(start) == '*' || name.charAt(start) == '#')) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    // }}}
+    // {{{ toString
+
+    @Override
+    public String toString()
+    {
+        return this.name;
+    }
+
+    // }}}
+
+}
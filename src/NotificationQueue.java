@@ -0,0 +1,417 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * A queue in front of a {@link NotificationCenter}, which collects
+ * notifications and posts them later, at a point defined by their
+ * {@link PostingStyle}. Modeled after <code>NSNotificationQueue</code> of
+ * Cocoa.
+ * <p>
+ * While a notification is pending, enqueueing a notification which coalesces
+ * with it (see {@link Coalescing}) replaces it: the pending notification is
+ * posted once, with the latest content, at its original point. So a burst of
+ * identical notifications causes a single call of the observers:
+ *
+ * <pre>
+ * NotificationQueue queue = new NotificationQueue(DefaultNotificationCenter.instance());
+ * ...
+ * queue.enqueueNotification(new DefaultNotification(DATA_CHANGED, this, null), PostingStyle.AFTER_WINDOW);
+ * </pre>
+ *
+ * Notifications with the styles {@link PostingStyle#WHEN_IDLE} and
+ * {@link PostingStyle#AFTER_WINDOW} are handed over by the scheduler to the
+ * async executor of the center, so observers never run on the scheduler
+ * thread; {@link PostingStyle#END_OF_BATCH} notifications are posted on the
+ * thread calling {@link #flush()}. Pending notifications are posted in the
+ * order they were enqueued first.
+ * <p>
+ * The queue is thread safe.
+ *
+ */
+public class NotificationQueue
+{
+
+    // {{{ constants
+
+    public static final long DEFAULT_TIME_WINDOW_MILLIS = 50;
+
+    // }}}
+    // {{{ variables
+
+    @Getter @NonNull private final NotificationCenter center;
+
+    @NonNull private final ScheduledExecutorService scheduler;
+
+    // posts the due notifications handed over by the scheduler
+    @NonNull private final Executor poster;
+
+    private volatile long timeWindowNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIME_WINDOW_MILLIS);
+
+    // guarded by this
+    private final List<Entry> pending = new ArrayList<Entry>();
+
+    // whether and when the pending notifications are drained next, guarded by this
+    private boolean scheduled;
+    private long scheduledTime;
+
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run()
+        {
+            drain();
+        }
+    };
+
+    // }}}
+    // {{{ constructor
+
+    /**
+     * Creates a queue posting to the given center, using a scheduler shared
+     * by all queues. The due notifications are posted one after another on
+     * the async executor of the center (see
+     * {@link DefaultNotificationCenter#getAsyncExecutor()}), or on the shared
+     * pool of daemon threads for other centers.
+     */
+    public NotificationQueue(@NonNull final NotificationCenter center)
+    {
+        this(center, NotificationScheduler.EXECUTOR, new BatchingExecutor(new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable command)
+            {
+                if (center instanceof DefaultNotificationCenter) {
+                    ((DefaultNotificationCenter) center).getAsyncExecutor().execute(command);
+                } else {
+                    DefaultNotificationCenter.DefaultAsyncExecutorHolder.EXECUTOR.execute(command);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Creates a queue posting to the given center.
+     *
+     * @param scheduler
+     *            The scheduler posting the {@link PostingStyle#WHEN_IDLE} and
+     *            {@link PostingStyle#AFTER_WINDOW} notifications on its
+     *            thread.
+     */
+    public NotificationQueue(@NonNull final NotificationCenter center,
+                             @NonNull final ScheduledExecutorService scheduler)
+    {
+        this(center, scheduler, scheduler);
+    }
+
+    /**
+     * Creates a queue posting to the given center.
+     *
+     * @param scheduler
+     *            The scheduler timing the {@link PostingStyle#WHEN_IDLE} and
+     *            {@link PostingStyle#AFTER_WINDOW} notifications.
+     * @param poster
+     *            The executor the scheduler hands the due notifications over
+     *            to, which posts them. It should run the tasks one after
+     *            another, to keep the order of the notifications.
+     */
+    public NotificationQueue(@NonNull final NotificationCenter center,
+                             @NonNull final ScheduledExecutorService scheduler, @NonNull final Executor poster)
+    {
+        this.center = center;
+        this.scheduler = scheduler;
+        this.poster = poster;
+    }
+
+    // }}}
+    // {{{ getTimeWindow
+
+    /**
+     * @return The delay of {@link PostingStyle#AFTER_WINDOW} notifications
+     */
+    public long getTimeWindow(@NonNull final TimeUnit unit)
+    {
+        return unit.convert(this.timeWindowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // }}}
+    // {{{ setTimeWindow
+
+    /**
+     * Sets the delay of {@link PostingStyle#AFTER_WINDOW} notifications,
+     * {@value #DEFAULT_TIME_WINDOW_MILLIS} ms by default. It applies to
+     * notifications enqueued afterwards.
+     */
+    @NonNull
+    public NotificationQueue setTimeWindow(final long timeWindow, @NonNull final TimeUnit unit)
+    {
+        if (timeWindow < 0) throw new IllegalArgumentException("Negative time window " + timeWindow);
+        this.timeWindowNanos = unit.toNanos(timeWindow);
+        return this;
+    }
+
+    // }}}
+    // {{{ enqueueNotification(Notification,PostingStyle)
+
+    /**
+     * see {@link #enqueueNotification(Notification, PostingStyle, Coalescing)},
+     * coalescing on name and sender.
+     */
+    public void enqueueNotification(@NonNull final Notification notification, @NonNull final PostingStyle style)
+    {
+        enqueueNotification(notification, style, Coalescing.ON_NAME_AND_SENDER);
+    }
+
+    // }}}
+    // {{{ enqueueNotification(Notification,PostingStyle,Coalescing)
+
+    /**
+     * Enqueues the given notification, to be posted as defined by the style.
+     * If a pending notification coalesces with it, the pending notification is
+     * replaced. A {@link PooledNotification} is copied and recycled, unless it
+     * is posted immediately.
+     *
+     * @param notification
+     *            The notification to post
+     * @param style
+     *            When to post the notification. With
+     *            {@link PostingStyle#NOW}, the coalescing notifications are
+     *            removed and the notification is posted immediately.
+     * @param coalescing
+     *            Which pending notifications are replaced
+     */
+    public void enqueueNotification(@NonNull final Notification notification, @NonNull final PostingStyle style,
+                                    @NonNull final Coalescing coalescing)
+    {
+        if (style == PostingStyle.NOW) {
+            dequeueNotifications(notification, coalescing);
+            this.center.postNotification(notification);
+            return;
+        }
+
+        // a pooled notification would be reused before it is posted
+        final Notification kept = DefaultNotificationCenter.detach(notification);
+        if (kept != notification) {
+            ((PooledNotification) notification).recycle();
+        }
+
+        final long time;
+        if (style == PostingStyle.END_OF_BATCH) {
+            time = Long.MAX_VALUE;
+        } else if (style == PostingStyle.AFTER_WINDOW) {
+            time = System.nanoTime() + this.timeWindowNanos;
+        } else {
+            time = System.nanoTime();
+        }
+
+        synchronized (this) {
+            boolean replaced = false;
+            for (final Iterator<Entry> iterator = this.pending.iterator(); iterator.hasNext();) {
+                final Entry entry = iterator.next();
+                if (coalescing.matches(entry.notification, kept)) {
+                    if (replaced) {
+                        iterator.remove(); // coalesced already
+                    } else {
+                        entry.notification = kept;
+                        replaced = true;
+                    }
+                }
+            }
+
+            if (!replaced) {
+                this.pending.add(new Entry(kept, time));
+                schedule(time);
+            }
+        }
+    }
+
+    // }}}
+    // {{{ dequeueNotifications
+
+    /**
+     * Removes the pending notifications coalescing with the given
+     * notification.
+     *
+     * @return The number of removed notifications
+     */
+    public synchronized int dequeueNotifications(@NonNull final Notification notification,
+                                                 @NonNull final Coalescing coalescing)
+    {
+        int removed = 0;
+        for (final Iterator<Entry> iterator = this.pending.iterator(); iterator.hasNext();) {
+            if (coalescing.matches(iterator.next().notification, notification)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    // }}}
+    // {{{ flush
+
+    /**
+     * Posts all pending notifications on the current thread, regardless of
+     * their style. This ends the batch of the
+     * {@link PostingStyle#END_OF_BATCH} notifications.
+     */
+    public void flush()
+    {
+        final List<Entry> entries;
+        synchronized (this) {
+            entries = new ArrayList<Entry>(this.pending);
+            this.pending.clear();
+        }
+        for (final Entry entry : entries) {
+            this.center.postNotification(entry.notification);
+        }
+    }
+
+    // }}}
+    // {{{ getPendingCount
+
+    /**
+     * @return The number of notifications waiting to be posted
+     */
+    public synchronized int getPendingCount()
+    {
+        return this.pending.size();
+    }
+
+    // }}}
+    // {{{ schedule
+
+    /**
+     * Makes sure the pending notifications are posted at the given time.
+     * Guarded by this.
+     */
+    private void schedule(final long time)
+    {
+        if (time == Long.MAX_VALUE || (this.scheduled && time - this.scheduledTime >= 0)) {
+            return; // posted by the batch, or by the scheduled drain
+        }
+        this.scheduled = true;
+        this.scheduledTime = time;
+        this.scheduler.schedule(this.drainTask, time - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    // }}}
+    // {{{ drain
+
+    /**
+     * Hands the pending notifications which are due over to the poster, run
+     * by the scheduler.
+     */
+    private void drain()
+    {
+        final List<Entry> due = new ArrayList<Entry>();
+        synchronized (this) {
+            final long now = System.nanoTime();
+            Entry next = null;
+            for (final Iterator<Entry> iterator = this.pending.iterator(); iterator.hasNext();) {
+                final Entry entry = iterator.next();
+                if (entry.time == Long.MAX_VALUE) {
+                    continue; // waits for the end of the batch
+                }
+                if (entry.time - now <= 0) {
+                    due.add(entry);
+                    iterator.remove();
+                } else if (next == null || entry.time - next.time < 0) {
+                    next = entry;
+                }
+            }
+
+            this.scheduled = false;
+            if (next != null) {
+                schedule(next.time);
+            }
+        }
+
+        if (due.isEmpty()) {
+            return;
+        }
+        this.poster.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                post(due);
+            }
+        });
+    }
+
+    // }}}
+    // {{{ post
+
+    private void post(@NonNull final List<Entry> entries)
+    {
+        for (final Entry entry : entries) {
+            try {
+                this.center.postNotification(entry.notification);
+            } catch (final Throwable ex) {
+                // an observer failed, even with an error, report it, but post the other notifications
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+            }
+        }
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Internal Helper Classes
+     * **************************************************************************
+     */
+
+    // {{{ Entry
+
+    private static final class Entry
+    {
+        /** the notification to post, replaced when coalescing */
+        @NonNull Notification notification;
+        /** the nano time to post at, {@link Long#MAX_VALUE} for the end of the batch */
+        final long time;
+
+        Entry(@NonNull final Notification notification, final long time)
+        {
+            this.notification = notification;
+            this.time = time;
+        }
+    }
+
+    // }}}
+
+}
@@ -0,0 +1,149 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.concurrent.Executor;
+
+import javax.annotation.Nullable;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+// }}}
+
+/**
+ * Optional settings for registering an {@link Observer} at a
+ * {@link DefaultNotificationCenter}.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * center.addObserver(observer, "MY_EVENT", null,
+ *         ObserverOptions.builder().deliveryMode(DeliveryMode.VIRTUAL_THREAD).build());
+ *
+ * center.addObserver(observer, "MY_EVENT", null,
+ *         ObserverOptions.builder().rateLimit(RateLimit.DEBOUNCE).rateLimitInterval(100).build());
+ * </pre>
+ *
+ */
+@Builder
+@ToString
+public class ObserverOptions
+{
+
+    // {{{ constants
+
+    /**
+     * The options used when none are given explicitly.
+     */
+    public static final ObserverOptions DEFAULT = builder().build();
+
+    // }}}
+    // {{{ variables
+
+    @Getter @NonNull final DeliveryMode deliveryMode;
+
+    /** how often the observer receives notifications, {@link RateLimit#NONE} by default */
+    @Getter @NonNull final RateLimit rateLimit;
+    /** the interval of the rate limit in milliseconds */
+    @Getter final long rateLimitInterval;
+
+    /**
+     * Observers with a higher priority are called before those with a lower
+     * one, the default is 0. Observers with the same priority are called in
+     * the order they were registered.
+     */
+    @Getter final int priority;
+
+    /**
+     * The capacity of the {@link Mailbox} of the observer, or 0 for none, the
+     * default. With a mailbox, the observer receives the notifications
+     * asynchronously.
+     */
+    @Getter final int mailboxCapacity;
+    /** what happens when the mailbox is full, {@link OverflowPolicy#DROP_OLDEST} by default */
+    @Getter @NonNull final OverflowPolicy overflowPolicy;
+    /**
+     * The userInfo key of the values to coalesce on, see
+     * {@link OverflowPolicy#COALESCE}. If not set, notifications with the same
+     * name and sender coalesce.
+     */
+    @Getter @Nullable final String coalescingKey;
+
+    /**
+     * The executor calling the observer, or <code>null</code> for the
+     * {@link #getDeliveryMode() delivery mode}. The deliveries to all
+     * observers with the same executor are handed over in batches, in the
+     * order they were posted; a single threaded executor thus binds the
+     * observers to its thread.
+     */
+    @Getter @Nullable final Executor executor;
+
+    /**
+     * The condition on the notifications the observer receives, or
+     * <code>null</code> for all with the registered name and sender.
+     */
+    @Getter @Nullable final NotificationFilter filter;
+
+    // }}}
+    // {{{ constructor
+
+    /**
+     * Called by the {@link #builder() builder}, the only way to create
+     * options.
+     *
+     * @throws IllegalArgumentException
+     *             if a rate limit is given without a positive interval, or the
+     *             mailbox capacity is negative
+     */
+    private ObserverOptions(@Nullable final DeliveryMode deliveryMode, @Nullable final RateLimit rateLimit,
+                            final long rateLimitInterval, final int priority, final int mailboxCapacity,
+                            @Nullable final OverflowPolicy overflowPolicy, @Nullable final String coalescingKey,
+                            @Nullable final Executor executor, @Nullable final NotificationFilter filter)
+    {
+        this.deliveryMode = deliveryMode == null ? DeliveryMode.POSTING_THREAD : deliveryMode;
+        this.rateLimit = rateLimit == null ? RateLimit.NONE : rateLimit;
+        if (this.rateLimit != RateLimit.NONE && rateLimitInterval <= 0) {
+            throw new IllegalArgumentException("Rate limit " + rateLimit + " needs a positive interval");
+        }
+        this.rateLimitInterval = rateLimitInterval;
+        this.priority = priority;
+        if (mailboxCapacity < 0) {
+            throw new IllegalArgumentException("Negative mailbox capacity " + mailboxCapacity);
+        }
+        this.mailboxCapacity = mailboxCapacity;
+        this.overflowPolicy = overflowPolicy == null ? OverflowPolicy.DROP_OLDEST : overflowPolicy;
+        this.coalescingKey = coalescingKey;
+        this.executor = executor;
+        this.filter = filter;
+    }
+
+    // }}}
+
+}
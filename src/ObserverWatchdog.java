@@ -0,0 +1,459 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * Watches the observer calls of a {@link DefaultNotificationCenter} and
+ * reports the calls taking longer than a threshold, e.g. because the
+ * observer blocks, see {@link DefaultNotificationCenter#setWatchdog(ObserverWatchdog)}.
+ * <p>
+ * The calls in flight are tracked per thread, without locks. Each thread
+ * calling observers allocates a small call stack once, which is kept until
+ * the thread ends or the watchdog is stopped. With
+ * {@link DeliveryMode#VIRTUAL_THREAD}, every delivery runs on a new thread,
+ * so every delivery allocates one. A check running on a thread of the watchdog reports a stalled call once
+ * to the {@link StallListener}, with the observer, the notification name and
+ * the stack of the calling thread. If an observer called by another one
+ * stalls, only the inner one is reported.
+ * <p>
+ * Optionally, an observer which stalled repeatedly is quarantined: it does
+ * not receive its notifications on the posting thread anymore, but
+ * asynchronously in the order they were posted, on the async executor of the
+ * center (see {@link DefaultNotificationCenter#getAsyncExecutor()}).
+ *
+ * <pre>
+ * center.setWatchdog(new ObserverWatchdog(100, TimeUnit.MILLISECONDS, new ObserverWatchdog.StallListener() {
+ *     public void observerStalled(ObserverWatchdog.StallReport report)
+ *     {
+ *         log.warn(report.toString());
+ *     }
+ * }, 3));
+ * </pre>
+ *
+ */
+public final class ObserverWatchdog
+{
+
+    // {{{ constants
+
+    // the maximum depth of nested calls tracked per thread
+    private static final int MAX_DEPTH = 16;
+
+    // }}}
+    // {{{ variables
+
+    private final long thresholdNanos;
+
+    /** the number of stalls after which an observer is quarantined, or 0 for never */
+    @Getter private final int quarantineAfter;
+
+    @NonNull private final StallListener listener;
+
+    private final ThreadLocal<CallStack> stacks = new ThreadLocal<CallStack>() {
+        @Override
+        protected CallStack initialValue()
+        {
+            return new CallStack(Thread.currentThread());
+        }
+    };
+
+    // the stacks of all threads which called observers since the watchdog was started
+    private final Queue<CallStack> activeStacks = new ConcurrentLinkedQueue<CallStack>();
+    // incremented when stopping, so the stacks are added again when restarted
+    private volatile int generation;
+
+    // runs the check on a thread of its own, which no observer can block, guarded by this
+    @Nullable private ScheduledExecutorService checker;
+
+    // }}}
+    // {{{ constructor
+
+    /**
+     * Creates a watchdog which only reports stalled calls.
+     */
+    public ObserverWatchdog(final long threshold, @NonNull final TimeUnit unit, @NonNull final StallListener listener)
+    {
+        this(threshold, unit, listener, 0);
+    }
+
+    /**
+     * @param threshold
+     *            The duration after which a call is reported
+     * @param listener
+     *            Receives the reports, on the
+     *            <code>NotificationCenter-watchdog</code> thread of this
+     *            watchdog, so it should not block, which would delay the
+     *            next checks
+     * @param quarantineAfter
+     *            The number of stalls after which an observer is called
+     *            asynchronously, or 0 for never
+     * @throws IllegalArgumentException
+     *             if the threshold is not positive or quarantineAfter is
+     *             negative
+     */
+    public ObserverWatchdog(final long threshold, @NonNull final TimeUnit unit, @NonNull final StallListener listener,
+                            final int quarantineAfter)
+    {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        if (quarantineAfter < 0) {
+            throw new IllegalArgumentException("Negative quarantineAfter " + quarantineAfter);
+        }
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.listener = listener;
+        this.quarantineAfter = quarantineAfter;
+    }
+
+    // }}}
+    // {{{ getThreshold
+
+    /**
+     * @return The duration after which a call is reported
+     */
+    public long getThreshold(@NonNull final TimeUnit unit)
+    {
+        return unit.convert(this.thresholdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // }}}
+    // {{{ enter
+
+    /**
+     * Tracks a call of the observer of the given registration on the current
+     * thread, which must be ended by {@link #exit(CallStack)}.
+     */
+    @NonNull
+    CallStack enter(@NonNull final DefaultNotificationCenter.ObserverReference reference,
+                    @NonNull final Notification notification)
+    {
+        final CallStack stack = this.stacks.get();
+        final int generation = this.generation;
+        if (stack.generation != generation) {
+            stack.generation = generation;
+            this.activeStacks.add(stack);
+        }
+
+        final int depth = stack.depth;
+        if (depth < MAX_DEPTH) {
+            Frame frame = stack.frames[depth];
+            if (frame == null) {
+                frame = new Frame();
+                stack.frames[depth] = frame;
+            }
+            frame.id = 0; // invalidates the frame while it is written
+            frame.reference = reference;
+            // the notification may be recycled before the check reports the call
+            frame.notificationName = notification.getName();
+            frame.start = System.nanoTime();
+            frame.id = ++stack.calls;
+        }
+        stack.depth = depth + 1;
+        return stack;
+    }
+
+    // }}}
+    // {{{ exit
+
+    void exit(@NonNull final CallStack stack)
+    {
+        final int depth = stack.depth - 1;
+        if (depth < MAX_DEPTH) {
+            final Frame frame = stack.frames[depth];
+            frame.id = 0;
+            // do not retain the observer
+            frame.reference = null;
+            frame.notificationName = null;
+        }
+        stack.depth = depth;
+    }
+
+    // }}}
+    // {{{ start
+
+    /**
+     * Starts checking the calls periodically, twice per threshold.
+     */
+    synchronized void start()
+    {
+        if (this.checker == null) {
+            final long period = Math.max(this.thresholdNanos / 2, TimeUnit.MILLISECONDS.toNanos(1));
+            this.checker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable, "NotificationCenter-watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.checker.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run()
+                {
+                    check();
+                }
+            }, period, period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // }}}
+    // {{{ stop
+
+    /**
+     * Stops checking, and releases the stacks of the threads.
+     */
+    synchronized void stop()
+    {
+        if (this.checker != null) {
+            this.checker.shutdown();
+            this.checker = null;
+        }
+        this.generation++;
+        this.activeStacks.clear();
+    }
+
+    // }}}
+    // {{{ check
+
+    /**
+     * Reports the stalled calls of all threads: per thread the innermost one
+     * exceeding the threshold, unless it has been reported already.
+     */
+    void check()
+    {
+        final long now = System.nanoTime();
+        for (final CallStack stack : this.activeStacks) {
+            if (!stack.thread.isAlive()) {
+                this.activeStacks.remove(stack);
+                continue;
+            }
+
+            for (int depth = Math.min(stack.depth, MAX_DEPTH) - 1; depth >= 0; depth--) {
+                final Frame frame = stack.frames[depth];
+                if (frame == null) {
+                    continue; // not written yet
+                }
+                final long id = frame.id;
+                if (id == 0) {
+                    continue;
+                }
+                final DefaultNotificationCenter.ObserverReference reference = frame.reference;
+                final String notificationName = frame.notificationName;
+                final long start = frame.start;
+                if (frame.id != id || reference == null || notificationName == null) {
+                    continue; // changed meanwhile
+                }
+
+                final long elapsed = now - start;
+                if (elapsed < this.thresholdNanos) {
+                    continue; // the outer calls are still checked
+                }
+                if (frame.reportedId != id) {
+                    frame.reportedId = id;
+                    report(stack.thread, reference, notificationName, elapsed);
+                }
+                break; // the outer calls are stalled by this one
+            }
+        }
+    }
+
+    // }}}
+    // {{{ report
+
+    private void report(@NonNull final Thread thread, @NonNull final DefaultNotificationCenter.ObserverReference reference,
+                        @NonNull final String notificationName, final long elapsed)
+    {
+        final int stallCount = reference.stalled();
+        final boolean quarantined = this.quarantineAfter > 0 && stallCount >= this.quarantineAfter
+                && reference.quarantine();
+
+        try {
+            this.listener.observerStalled(new StallReport(reference, reference.get(), notificationName, thread,
+                    thread.getStackTrace(), elapsed, stallCount, quarantined));
+        } catch (final RuntimeException ex) {
+            final Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, ex);
+        }
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Internal Helper Classes
+     * **************************************************************************
+     */
+
+    // {{{ StallListener
+
+    /**
+     * Receives the reports of a {@link ObserverWatchdog}.
+     */
+    public interface StallListener
+    {
+        /**
+         * Called once per stalled call, while the observer is still running.
+         */
+        void observerStalled(@NonNull StallReport report);
+    }
+
+    // }}}
+    // {{{ StallReport
+
+    /**
+     * A call of an observer exceeding the threshold of the watchdog.
+     */
+    public static final class StallReport
+    {
+        /** the registration of the observer */
+        @Getter @NonNull private final Subscription subscription;
+        /** the observer, or <code>null</code> if it was weakly registered and has been collected */
+        @Getter @Nullable private final Observer observer;
+        @Getter @NonNull private final String notificationName;
+        /** the thread calling the observer */
+        @Getter @NonNull private final Thread thread;
+        /** the stack of the thread when the stall was detected */
+        @Getter @NonNull private final StackTraceElement[] stackTrace;
+        private final long elapsedNanos;
+        /** the number of stalls of the registration, including this one */
+        @Getter private final int stallCount;
+        /** whether the registration has been quarantined by this stall */
+        @Getter private final boolean quarantined;
+
+        StallReport(@NonNull final Subscription subscription, @Nullable final Observer observer,
+                    @NonNull final String notificationName, @NonNull final Thread thread,
+                    @NonNull final StackTraceElement[] stackTrace, final long elapsedNanos, final int stallCount,
+                    final boolean quarantined)
+        {
+            this.subscription = subscription;
+            this.observer = observer;
+            this.notificationName = notificationName;
+            this.thread = thread;
+            this.stackTrace = stackTrace;
+            this.elapsedNanos = elapsedNanos;
+            this.stallCount = stallCount;
+            this.quarantined = quarantined;
+        }
+
+        /**
+         * @return The class of the observer, or <code>null</code> if it has
+         *         been collected
+         */
+        @Nullable
+        public Class<?> getObserverClass()
+        {
+            return this.observer != null ? this.observer.getClass() : null;
+        }
+
+        /**
+         * @return The time the observer was running when the stall was
+         *         detected
+         */
+        public long getElapsed(@NonNull final TimeUnit unit)
+        {
+            return unit.convert(this.elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString()
+        {
+            final StringBuilder result = new StringBuilder();
+            result.append("Observer ").append(getObserverClass() != null ? getObserverClass().getName() : "(collected)")
+                    .append(" stalled for ").append(getElapsed(TimeUnit.MILLISECONDS)).append(" ms on ")
+                    .append(this.notificationName).append(" in thread ").append(this.thread.getName());
+            if (this.quarantined) {
+                result.append(", quarantined");
+            }
+            for (final StackTraceElement element : this.stackTrace) {
+                result.append("\n\tat ").append(element);
+            }
+            return result.toString();
+        }
+    }
+
+    // }}}
+    // {{{ CallStack
+
+    /**
+     * The observer calls in flight on a thread. Only the thread itself
+     * changes it, the check just reads it. The frames are created when a
+     * call first reaches their depth.
+     */
+    static final class CallStack
+    {
+        @NonNull final Thread thread;
+        @NonNull final Frame[] frames = new Frame[MAX_DEPTH];
+
+        // the number of nested calls, including those which are not tracked
+        volatile int depth;
+        // the number of calls so far, identifying the frames
+        long calls;
+        // the generation of the watchdog the stack was added in, -1 for none
+        int generation = -1;
+
+        CallStack(@NonNull final Thread thread)
+        {
+            this.thread = thread;
+        }
+    }
+
+    // }}}
+    // {{{ Frame
+
+    /**
+     * A call in flight. The id is written last, and 0 while the frame is
+     * written, so the check can detect frames which changed while reading
+     * them.
+     */
+    static final class Frame
+    {
+        volatile long id;
+        @Nullable DefaultNotificationCenter.ObserverReference reference;
+        @Nullable String notificationName;
+        long start;
+
+        // the id of the last call reported, only used by the check
+        long reportedId;
+    }
+
+    // }}}
+
+}
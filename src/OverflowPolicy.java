@@ -0,0 +1,64 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+/**
+ * Defines what happens when a notification is posted to an observer whose
+ * {@link Mailbox} is full, see {@link ObserverOptions#getOverflowPolicy()}.
+ *
+ */
+public enum OverflowPolicy
+{
+    /**
+     * The posting thread waits until there is space. An observer must not post
+     * notifications to itself then, since it would wait for itself.
+     */
+    BLOCK,
+
+    /**
+     * The posted notification is dropped.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The oldest notification in the mailbox is dropped. This is the default.
+     */
+    DROP_OLDEST,
+
+    /**
+     * A notification in the mailbox with the same coalescing key (see
+     * {@link ObserverOptions#getCoalescingKey()}) is replaced by the posted
+     * one, keeping its position. This happens even if the mailbox is not
+     * full. If there is none and the mailbox is full, the oldest notification
+     * is dropped.
+     */
+    COALESCE,
+
+    /**
+     * The posted notification is dropped, and an {@link IllegalStateException}
+     * is thrown to the posting thread.
+     */
+    FAIL;
+}
@@ -0,0 +1,308 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * A mutable {@link Notification} which is reused for posting, so posting does
+ * not allocate.
+ * <p>
+ * Each thread has one instance, which is handed out by
+ * {@link #obtain(NotificationName, Object)}, filled, and posted with
+ * {@link DefaultNotificationCenter#postNotification(Notification)}. After the
+ * dispatch, the notification is recycled and reused for the next post of the
+ * thread:
+ *
+ * <pre>
+ * center.postNotification(PooledNotification.obtain(MY_EVENT, this).put("value", value));
+ * </pre>
+ *
+ * Observers must therefore not retain the notification or its userInfo
+ * after returning from {@link Observer#receivedNotification(Notification)},
+ * but copy the data they need. Each obtained notification has to be posted
+ * exactly once.
+ * <p>
+ * If the instance of the thread is still being dispatched, e.g. when an
+ * observer posts another notification, a new instance is created.
+ *
+ */
+public final class PooledNotification
+        implements Notification
+{
+
+    // {{{ variables
+
+    private static final ThreadLocal<PooledNotification> pool = new ThreadLocal<PooledNotification>() {
+        @Override
+        protected PooledNotification initialValue()
+        {
+            return new PooledNotification();
+        }
+    };
+
+    /** the name of the notification, which saves the lookup when posting */
+    @Getter @Nullable private NotificationName notificationName;
+    @Getter @Nullable private Object object;
+    @NonNull private final UserInfo userInfo = new UserInfo();
+
+    private volatile boolean inUse;
+
+    // }}}
+    // {{{ constructor
+
+    private PooledNotification()
+    {
+    }
+
+    // }}}
+    // {{{ obtain(NotificationName,Object)
+
+    /**
+     * Returns the notification of the current thread, set to the given name
+     * and object, without userInfo.
+     */
+    @NonNull
+    public static PooledNotification obtain(@NonNull final NotificationName notificationName,
+                                            @Nullable final Object object)
+    {
+        PooledNotification notification = pool.get();
+        if (notification.inUse) {
+            notification = new PooledNotification();
+        }
+        notification.inUse = true;
+        notification.notificationName = notificationName;
+        notification.object = object;
+        return notification;
+    }
+
+    // }}}
+    // {{{ obtain(NotificationName)
+
+    /**
+     * see {@link #obtain(NotificationName, Object)}
+     */
+    @NonNull
+    public static PooledNotification obtain(@NonNull final NotificationName notificationName)
+    {
+        return obtain(notificationName, null);
+    }
+
+    // }}}
+    // {{{ put
+
+    /**
+     * Adds an entry to the userInfo, replacing the value of an existing key.
+     */
+    @NonNull
+    public PooledNotification put(@NonNull final String key, @Nullable final Object value)
+    {
+        this.userInfo.set(key, value);
+        return this;
+    }
+
+    // }}}
+    // {{{ getName
+
+    @Override
+    public String getName()
+    {
+        return this.notificationName.getName();
+    }
+
+    // }}}
+    // {{{ getUserInfo
+
+    /**
+     * @return The userInfo, which cannot be modified by the observers. It is
+     *         only valid during the dispatch.
+     */
+    @Override
+    public Map<String, Object> getUserInfo()
+    {
+        return this.userInfo;
+    }
+
+    // }}}
+    // {{{ recycle
+
+    /**
+     * Releases the references of the notification and returns it to the pool.
+     * Called after the notification has been dispatched.
+     */
+    void recycle()
+    {
+        this.notificationName = null;
+        this.object = null;
+        this.userInfo.reset();
+        this.inUse = false;
+    }
+
+    // }}}
+    // {{{ toString
+
+    @Override
+    public String toString()
+    {
+        return "PooledNotification(name=" + this.notificationName + ", object=" + this.object + ", userInfo="
+                + this.userInfo + ")";
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Internal Helper Classes
+     * **************************************************************************
+     */
+
+    // {{{ UserInfo
+
+    /**
+     * A reusable, read-only map of a few entries, stored in a flat array of
+     * keys and values. Reading does not allocate, only iterating does.
+     */
+    private static final class UserInfo
+            extends AbstractMap<String, Object>
+    {
+        private Object[] entries = new Object[8];
+        private int size;
+
+        void set(@NonNull final String key, @Nullable final Object value)
+        {
+            final int index = indexOf(key);
+            if (index >= 0) {
+                this.entries[index + 1] = value;
+                return;
+            }
+            if (this.size * 2 == this.entries.length) {
+                final Object[] grown = new Object[this.entries.length * 2];
+                System.arraycopy(this.entries, 0, grown, 0, this.entries.length);
+                this.entries = grown;
+            }
+            this.entries[this.size * 2] = key;
+            this.entries[this.size * 2 + 1] = value;
+            this.size++;
+        }
+
+        void reset()
+        {
+            for (int i = 0; i < this.size * 2; i++) {
+                this.entries[i] = null;
+            }
+            this.size = 0;
+        }
+
+        private int indexOf(@Nullable final Object key)
+        {
+            for (int i = 0; i < this.size * 2; i += 2) {
+                if (this.entries[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object get(final Object key)
+        {
+            final int index = indexOf(key);
+            return index < 0 ? null : this.entries[index + 1];
+        }
+
+        @Override
+        public boolean containsKey(final Object key)
+        {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size()
+        {
+            return this.size;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet()
+        {
+            return new AbstractSet<Map.Entry<String, Object>>() {
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator()
+                {
+                    return new Iterator<Map.Entry<String, Object>>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return this.index < UserInfo.this.size * 2;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Object> next()
+                        {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final Object[] entries = UserInfo.this.entries;
+                            final Map.Entry<String, Object> entry = new SimpleImmutableEntry<String, Object>(
+                                    (String) entries[this.index], entries[this.index + 1]);
+                            this.index += 2;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove()
+                        {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return UserInfo.this.size;
+                }
+            };
+        }
+    }
+
+    // }}}
+
+}
@@ -0,0 +1,57 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+/**
+ * Defines when a {@link NotificationQueue} posts an enqueued notification.
+ *
+ */
+public enum PostingStyle
+{
+    /**
+     * Post immediately on the enqueueing thread, after removing the pending
+     * notifications it coalesces with.
+     */
+    NOW,
+
+    /**
+     * Post as soon as the scheduler thread of the queue is idle. Notifications
+     * enqueued meanwhile coalesce.
+     */
+    WHEN_IDLE,
+
+    /**
+     * Post at the end of the time window of the queue, which starts when the
+     * notification is enqueued. Notifications enqueued within the window
+     * coalesce.
+     */
+    AFTER_WINDOW,
+
+    /**
+     * Post when the batch ends, i.e. when {@link NotificationQueue#flush()} is
+     * called.
+     */
+    END_OF_BATCH;
+}
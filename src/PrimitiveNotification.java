@@ -0,0 +1,291 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * A {@link Notification} for numeric information, which is stored in
+ * primitive arrays instead of boxed values in a map:
+ *
+ * <pre>
+ * center.postNotification(new PrimitiveNotification(QUOTE, this).putDouble("price", price)
+ *         .putLong("quantity", quantity).putLong("timestamp", timestamp));
+ * </pre>
+ *
+ * Observers read the values with {@link #getInt(String)},
+ * {@link #getLong(String)} and {@link #getDouble(String)}. For other
+ * observers, the values are boxed into the userInfo when it is requested the
+ * first time.
+ * <p>
+ * As any userInfo, the values must not be changed after posting.
+ *
+ */
+public class PrimitiveNotification
+        implements Notification
+{
+
+    // {{{ constants
+
+    private static final byte INT = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+
+    // }}}
+    // {{{ variables
+
+    /** the name of the notification, which saves the lookup when posting */
+    @Getter @NonNull final NotificationName notificationName;
+    @Getter @Nullable final Object object;
+
+    @NonNull private String[] keys = new String[4];
+    /** the values, doubles by their bits */
+    @NonNull private long[] values = new long[4];
+    @NonNull private byte[] types = new byte[4];
+    private int size;
+
+    @Nullable private volatile Map<String, Object> userInfo;
+
+    // }}}
+    // {{{ constructor
+
+    public PrimitiveNotification(@NonNull final NotificationName notificationName, @Nullable final Object object)
+    {
+        this.notificationName = notificationName;
+        this.object = object;
+    }
+
+    // }}}
+    // {{{ putInt
+
+    @NonNull
+    public PrimitiveNotification putInt(@NonNull final String key, final int value)
+    {
+        return put(key, value, INT);
+    }
+
+    // }}}
+    // {{{ putLong
+
+    @NonNull
+    public PrimitiveNotification putLong(@NonNull final String key, final long value)
+    {
+        return put(key, value, LONG);
+    }
+
+    // }}}
+    // {{{ putDouble
+
+    @NonNull
+    public PrimitiveNotification putDouble(@NonNull final String key, final double value)
+    {
+        return put(key, Double.doubleToRawLongBits(value), DOUBLE);
+    }
+
+    // }}}
+    // {{{ containsKey
+
+    public boolean containsKey(@Nullable final String key)
+    {
+        return indexOf(key) >= 0;
+    }
+
+    // }}}
+    // {{{ getInt
+
+    /**
+     * @return The value of the given key, converted as by a narrowing
+     *         primitive conversion if it was not put as an int
+     * @throws IllegalArgumentException
+     *             if there is no value for the key
+     */
+    public int getInt(@NonNull final String key)
+    {
+        final int index = checkedIndexOf(key);
+        return this.types[index] == DOUBLE ? (int) Double.longBitsToDouble(this.values[index])
+                : (int) this.values[index];
+    }
+
+    // }}}
+    // {{{ getLong
+
+    /**
+     * @return The value of the given key, converted as by a narrowing
+     *         primitive conversion if it was put as a double
+     * @throws IllegalArgumentException
+     *             if there is no value for the key
+     */
+    public long getLong(@NonNull final String key)
+    {
+        final int index = checkedIndexOf(key);
+        return this.types[index] == DOUBLE ? (long) Double.longBitsToDouble(this.values[index])
+                : this.values[index];
+    }
+
+    // }}}
+    // {{{ getDouble
+
+    /**
+     * @return The value of the given key
+     * @throws IllegalArgumentException
+     *             if there is no value for the key
+     */
+    public double getDouble(@NonNull final String key)
+    {
+        final int index = checkedIndexOf(key);
+        return this.types[index] == DOUBLE ? Double.longBitsToDouble(this.values[index]) : this.values[index];
+    }
+
+    // }}}
+    // {{{ getName
+
+    @Override
+    public String getName()
+    {
+        return this.notificationName.getName();
+    }
+
+    // }}}
+    // {{{ getUserInfo
+
+    /**
+     * @return The values, boxed as {@link Integer}, {@link Long} or
+     *         {@link Double}
+     */
+    @Override
+    public Map<String, Object> getUserInfo()
+    {
+        Map<String, Object> result = this.userInfo;
+        if (result == null) {
+            final CompactMap.Builder builder = new CompactMap.Builder(this.size);
+            for (int i = 0; i < this.size; i++) {
+                builder.put(this.keys[i], box(i));
+            }
+            this.userInfo = result = builder.build();
+        }
+        return result;
+    }
+
+    // }}}
+    // {{{ toString
+
+    @Override
+    public String toString()
+    {
+        return "PrimitiveNotification(name=" + getName() + ", object=" + this.object + ", userInfo="
+                + getUserInfo() + ")";
+    }
+
+    // }}}
+    // {{{ put
+
+    @NonNull
+    private PrimitiveNotification put(@NonNull final String key, final long value, final byte type)
+    {
+        int index = indexOf(key);
+        if (index < 0) {
+            if (this.size == this.keys.length) {
+                grow();
+            }
+            index = this.size++;
+            this.keys[index] = key;
+        }
+        this.values[index] = value;
+        this.types[index] = type;
+        this.userInfo = null;
+        return this;
+    }
+
+    // }}}
+    // {{{ grow
+
+    private void grow()
+    {
+        final int capacity = this.keys.length * 2;
+
+        final String[] keys = new String[capacity];
+        System.arraycopy(this.keys, 0, keys, 0, this.size);
+        this.keys = keys;
+
+        final long[] values = new long[capacity];
+        System.arraycopy(this.values, 0, values, 0, this.size);
+        this.values = values;
+
+        final byte[] types = new byte[capacity];
+        System.arraycopy(this.types, 0, types, 0, this.size);
+        this.types = types;
+    }
+
+    // }}}
+    // {{{ indexOf
+
+    private int indexOf(@Nullable final String key)
+    {
+        for (int i = 0; i < this.size; i++) {
+            if (this.keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // }}}
+    // {{{ checkedIndexOf
+
+    private int checkedIndexOf(@NonNull final String key)
+    {
+        final int index = indexOf(key);
+        if (index < 0) throw new IllegalArgumentException("No value for key " + key);
+        return index;
+    }
+
+    // }}}
+    // {{{ box
+
+    @NonNull
+    private Object box(final int index)
+    {
+        switch (this.types[index]) {
+        case INT:
+            return Integer.valueOf((int) this.values[index]);
+        case LONG:
+            return Long.valueOf(this.values[index]);
+        default:
+            return Double.valueOf(Double.longBitsToDouble(this.values[index]));
+        }
+    }
+
+    // }}}
+
+}
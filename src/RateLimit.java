@@ -0,0 +1,62 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+/**
+ * Limits how often an observer receives notifications, see
+ * {@link ObserverOptions#getRateLimit()}. The interval is set by
+ * {@link ObserverOptions#getRateLimitInterval()}.
+ * <p>
+ * Notifications which are delivered later run on the async executor of the
+ * center (see {@link DefaultNotificationCenter#getAsyncExecutor()}), one after
+ * the other.
+ *
+ */
+public enum RateLimit
+{
+    /**
+     * Every notification is delivered. This is the default.
+     */
+    NONE,
+
+    /**
+     * At most one notification per interval is delivered: a notification is
+     * delivered immediately, if the interval has passed since the last
+     * delivery, otherwise it is dropped.
+     */
+    THROTTLE,
+
+    /**
+     * Only the latest notification of a burst is delivered, after no further
+     * notification was posted for the interval.
+     */
+    DEBOUNCE,
+
+    /**
+     * The latest notification is delivered once per interval, if there was a
+     * new one since the last delivery.
+     */
+    SAMPLE;
+}
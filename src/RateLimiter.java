@@ -0,0 +1,182 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * The state of a registration with a {@link RateLimit}. Notifications are
+ * offered by the dispatch; the deferred ones are handed over from the shared
+ * {@link NotificationScheduler} to the executor of the registration, or else
+ * the async executor of the center.
+ *
+ */
+final class RateLimiter
+        implements Runnable
+{
+
+    // {{{ variables
+
+    @NonNull private final DefaultNotificationCenter.ObserverReference reference;
+    @NonNull private final RateLimit rateLimit;
+    private final long intervalNanos;
+
+    // guarded by this
+    private boolean delivered;
+    // throttle: the time of the last delivery, otherwise of the last offer
+    private long lastTime;
+    @Nullable private Notification latest;
+    // whether a deferred delivery is pending
+    private boolean scheduled;
+
+    private final Runnable handOver = new Runnable() {
+        @Override
+        public void run()
+        {
+            handOver();
+        }
+    };
+
+    // }}}
+    // {{{ constructor
+
+    RateLimiter(@NonNull final DefaultNotificationCenter.ObserverReference reference,
+                @NonNull final ObserverOptions options)
+    {
+        this.reference = reference;
+        this.rateLimit = options.getRateLimit();
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(options.getRateLimitInterval());
+    }
+
+    // }}}
+    // {{{ offer
+
+    /**
+     * @return <code>true</code> if the notification has to be delivered now,
+     *         by the caller
+     */
+    boolean offer(@NonNull final Notification notification)
+    {
+        final long now = System.nanoTime();
+        if (this.rateLimit == RateLimit.THROTTLE) {
+            synchronized (this) {
+                if (this.delivered && now - this.lastTime < this.intervalNanos) {
+                    return false;
+                }
+                this.delivered = true;
+                this.lastTime = now;
+                return true;
+            }
+        }
+
+        final Notification kept = DefaultNotificationCenter.detach(notification);
+        synchronized (this) {
+            this.latest = kept;
+            this.lastTime = now;
+            if (!this.scheduled) {
+                this.scheduled = true;
+                schedule(this.intervalNanos);
+            }
+        }
+        return false;
+    }
+
+    // }}}
+    // {{{ run
+
+    /**
+     * Delivers the latest notification, if it is due.
+     */
+    @Override
+    public void run()
+    {
+        final Notification notification;
+        synchronized (this) {
+            if (this.rateLimit == RateLimit.DEBOUNCE) {
+                final long remaining = this.lastTime + this.intervalNanos - System.nanoTime();
+                if (remaining > 0) {
+                    schedule(remaining); // not quiet yet
+                    return;
+                }
+            }
+
+            notification = this.latest;
+            this.latest = null;
+            if (notification == null) {
+                this.scheduled = false;
+                return;
+            }
+        }
+
+        this.reference.deliverDetached(notification);
+
+        synchronized (this) {
+            // check again for notifications offered meanwhile
+            schedule(this.intervalNanos);
+        }
+    }
+
+    // }}}
+    // {{{ handOver
+
+    /**
+     * Hands the delivery over to the executor. If the executor rejects it,
+     * e.g. because it is shut down, the pending notification is dropped and
+     * the failure reported, so the next offer schedules again.
+     */
+    private void handOver()
+    {
+        try {
+            this.reference.getDetachedExecutor().execute(this);
+        } catch (final Throwable ex) {
+            synchronized (this) {
+                this.latest = null;
+                this.scheduled = false;
+            }
+            // the scheduler would swallow it
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+        }
+    }
+
+    // }}}
+    // {{{ schedule
+
+    private void schedule(final long delayNanos)
+    {
+        NotificationScheduler.EXECUTOR.schedule(this.handOver, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // }}}
+
+}
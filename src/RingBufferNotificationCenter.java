@@ -0,0 +1,649 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * A {@link WeakNotificationCenter} for high notification rates, which
+ * decouples posting from dispatching by a preallocated ring buffer.
+ * <p>
+ * Posting a notification only claims the next free slot of the ring buffer,
+ * fills it and publishes it, without locks. The poster also creates the
+ * notification of a post by name and looks up the interned
+ * {@link NotificationName}, or the caller passes it, so the consumers only
+ * find the observers by the id of the name and call them. One or more
+ * consumer threads take the published slots and dispatch them to the
+ * observers, which are registered in an internal
+ * {@link DefaultNotificationCenter}, so the same matching rules apply. If the ring buffer is full, posters wait for
+ * free slots, which bounds the memory used for pending notifications.
+ * <p>
+ * Note that in contrast to {@link DefaultNotificationCenter}, notifications
+ * are delivered asynchronously: the post methods return as soon as the
+ * notification has been published. With a single consumer, notifications are
+ * delivered in the order they were published; with more consumers, the order
+ * is only defined per consumer.
+ * <p>
+ * The posting thread never runs the observers, so bursts of up to the buffer
+ * size are posted quickly even to slow observers. For cheap observers, the
+ * handover between threads costs more than calling them directly, and the
+ * sustained rate is bounded by the consumers. The <code>BurstBenchmark</code>
+ * and <code>RingBufferBenchmark</code> of the benchmarks compare both
+ * centers. {@link WaitStrategy#YIELDING} and {@link WaitStrategy#BUSY_SPIN}
+ * hand over faster than {@link WaitStrategy#BLOCKING}, which keeps idle
+ * consumers from using any CPU.
+ *
+ */
+public class RingBufferNotificationCenter
+        implements WeakNotificationCenter
+{
+    // {{{ constants
+
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long BLOCKING_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // }}}
+    // {{{ variables
+
+    private final DefaultNotificationCenter dispatcher = new DefaultNotificationCenter();
+
+    private final Slot[] slots;
+    private final int mask;
+    private final PaddedAtomicLong publishCursor = new PaddedAtomicLong();
+    private final PaddedAtomicLong consumeCursor = new PaddedAtomicLong();
+
+    @Getter @NonNull private final WaitStrategy waitStrategy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final AtomicInteger blockedConsumers = new AtomicInteger();
+
+    private final Thread[] consumers;
+    private volatile boolean running = true;
+
+    // }}}
+    // {{{ constructor
+
+    /**
+     * Creates a center with {@value #DEFAULT_BUFFER_SIZE} slots and a single
+     * consumer thread, using {@link WaitStrategy#BLOCKING}.
+     */
+    public RingBufferNotificationCenter()
+    {
+        this(DEFAULT_BUFFER_SIZE, 1, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * Creates a center and starts its consumer threads. The threads are
+     * daemons, call {@link #shutdown()} to stop them.
+     *
+     * @param bufferSize
+     *            The number of slots of the ring buffer, must be a power of
+     *            two.
+     * @param consumerCount
+     *            The number of threads dispatching the notifications.
+     * @param waitStrategy
+     *            How posters and consumers wait for each other.
+     */
+    public RingBufferNotificationCenter(final int bufferSize, final int consumerCount,
+                                        @NonNull final WaitStrategy waitStrategy)
+    {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of two: " + bufferSize);
+        }
+        if (consumerCount < 1) {
+            throw new IllegalArgumentException("consumerCount must be positive: " + consumerCount);
+        }
+
+        this.waitStrategy = waitStrategy;
+        this.mask = bufferSize - 1;
+        this.slots = new Slot[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            this.slots[i] = new Slot(i);
+        }
+
+        this.consumers = new Thread[consumerCount];
+        for (int i = 0; i < consumerCount; i++) {
+            final Thread consumer = new Thread(new Runnable() {
+                @Override
+                public void run()
+                {
+                    consume();
+                }
+            }, "NotificationCenter-ring-" + (i + 1));
+            consumer.setDaemon(true);
+            this.consumers[i] = consumer;
+        }
+        for (final Thread consumer : this.consumers) {
+            consumer.start();
+        }
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Observers
+     * **************************************************************************
+     */
+
+    // {{{ addObserver(Observer,String,Object)
+
+    @Override
+    public Subscription addObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                                    @Nullable final Object notificationSender)
+    {
+        return this.dispatcher.addObserver(observer, notificationName, notificationSender);
+    }
+
+    // }}}
+    // {{{ addObserver(Observer,String)
+
+    /**
+     * see {@link #addObserver(Observer, String, Object)}
+     */
+    public Subscription addObserver(@NonNull final Observer observer, @Nullable final String notificationName)
+    {
+        return addObserver(observer, notificationName, null);
+    }
+
+    // }}}
+    // {{{ addWeakObserver(Observer,String,Object)
+
+    @Override
+    public Subscription addWeakObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                                        @Nullable final Object notificationSender)
+    {
+        return this.dispatcher.addWeakObserver(observer, notificationName, notificationSender);
+    }
+
+    // }}}
+    // {{{ removeObserver(Observer,String,Object)
+
+    @Override
+    public void removeObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                               @Nullable final Object notificationSender)
+    {
+        this.dispatcher.removeObserver(observer, notificationName, notificationSender);
+    }
+
+    // }}}
+    // {{{ removeObserver(Observer)
+
+    @Override
+    public void removeObserver(@NonNull final Observer observer)
+    {
+        this.dispatcher.removeObserver(observer);
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Post Notification
+     * **************************************************************************
+     */
+
+    // {{{ postNotification(Notification)
+
+    @Override
+    public void postNotification(@NonNull final Notification notification)
+    {
+        final NotificationName notificationName = DefaultNotificationCenter.findName(notification);
+        final Slot slot = claim();
+        slot.notification = notification;
+        slot.notificationName = notificationName;
+        publish(slot);
+    }
+
+    // }}}
+    // {{{ postNotification(String,Object,Map)
+
+    @Override
+    public void postNotification(@NonNull final String notificationName, @Nullable final Object notificationSender,
+                                 @Nullable final Map<String, Object> userInfo)
+    {
+        // names without an interned instance have never been observed
+        final NotificationName interned = NotificationName.find(notificationName);
+        final Notification notification = new DefaultNotification(notificationName, notificationSender, userInfo);
+        final Slot slot = claim();
+        slot.notification = notification;
+        slot.notificationName = interned;
+        publish(slot);
+    }
+
+    // }}}
+    // {{{ postNotification(String,Object,Object...)
+
+    /**
+     * see {@link #postNotification(String, Object, Map)} and
+     * {@link DefaultNotificationCenter#createUserInfo(Object...)}
+     */
+    public void postNotification(@NonNull final String notificationName, @Nullable final Object notificationSender,
+                                 final Object... userInfo)
+    {
+        postNotification(notificationName, notificationSender, DefaultNotificationCenter.createUserInfo(userInfo));
+    }
+
+    // }}}
+    // {{{ postNotification(String,Object)
+
+    @Override
+    public void postNotification(@NonNull final String notificationName, @Nullable final Object notificationSender)
+    {
+        postNotification(notificationName, notificationSender, (Map<String, Object>) null);
+    }
+
+    // }}}
+    // {{{ postNotification(NotificationName,Object,Map)
+
+    /**
+     * Posts a notification with the given name, sender and userInfo, as
+     * {@link #postNotification(String, Object, Map)}, without looking up the
+     * name.
+     */
+    public void postNotification(@NonNull final NotificationName notificationName,
+                                 @Nullable final Object notificationSender,
+                                 @Nullable final Map<String, Object> userInfo)
+    {
+        final Notification notification = new DefaultNotification(notificationName.getName(), notificationSender,
+                userInfo);
+        final Slot slot = claim();
+        slot.notification = notification;
+        slot.notificationName = notificationName;
+        publish(slot);
+    }
+
+    // }}}
+    // {{{ postNotification(NotificationName,Object)
+
+    /**
+     * see {@link #postNotification(NotificationName, Object, Map)}
+     */
+    public void postNotification(@NonNull final NotificationName notificationName,
+                                 @Nullable final Object notificationSender)
+    {
+        postNotification(notificationName, notificationSender, (Map<String, Object>) null);
+    }
+
+    // }}}
+    // {{{ postNotification(NotificationName)
+
+    /**
+     * see {@link #postNotification(NotificationName, Object)}
+     */
+    public void postNotification(@NonNull final NotificationName notificationName)
+    {
+        postNotification(notificationName, null);
+    }
+
+    // }}}
+    // {{{ postNotification(String)
+
+    /**
+     * see {@link #postNotification(String, Object)}
+     */
+    public void postNotification(@NonNull final String notificationName)
+    {
+        postNotification(notificationName, null);
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Lifecycle
+     * **************************************************************************
+     */
+
+    // {{{ shutdown
+
+    /**
+     * Stops the consumer threads after they have dispatched all notifications
+     * published so far. Posting afterwards throws an
+     * {@link IllegalStateException}. A notification posted concurrently is
+     * either rejected that way or dispatched, if the consumers have stopped
+     * already on the posting thread.
+     */
+    public void shutdown()
+    {
+        this.running = false;
+        signalConsumers();
+    }
+
+    // }}}
+    // {{{ awaitTermination
+
+    /**
+     * Waits until the consumer threads have stopped after {@link #shutdown()}.
+     *
+     * @return <code>true</code> if all consumers have stopped,
+     *         <code>false</code> if the timeout elapsed before.
+     */
+    public boolean awaitTermination(final long timeout, @NonNull final TimeUnit unit)
+            throws InterruptedException
+    {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (final Thread consumer : this.consumers) {
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return !isAlive();
+            }
+            consumer.join(remainingMillis);
+        }
+        return !isAlive();
+    }
+
+    // }}}
+    // {{{ getPendingCount
+
+    /**
+     * @return The number of notifications posted, but not taken by a
+     *         consumer yet
+     */
+    public int getPendingCount()
+    {
+        return (int) Math.max(this.publishCursor.get() - this.consumeCursor.get(), 0);
+    }
+
+    // }}}
+    // {{{ isAlive
+
+    private boolean isAlive()
+    {
+        for (final Thread consumer : this.consumers) {
+            if (consumer.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Ring Buffer
+     * **************************************************************************
+     */
+
+    // {{{ claim
+
+    /**
+     * Claims the next slot for publishing, waiting for the consumers if the
+     * ring buffer is full.
+     */
+    @NonNull
+    private Slot claim()
+    {
+        if (!this.running) {
+            throw new IllegalStateException("Notification center has been shut down");
+        }
+
+        int tries = 0;
+        while (true) {
+            final long position = this.publishCursor.get();
+            final Slot slot = this.slots[(int) position & this.mask];
+            final long difference = slot.sequence - position;
+
+            if (difference == 0) {
+                if (this.publishCursor.compareAndSet(position, position + 1)) {
+                    return slot;
+                }
+            } else if (difference < 0) {
+                // ring buffer is full, and stays full once the consumers stopped
+                if (!this.running) {
+                    throw new IllegalStateException("Notification center has been shut down");
+                }
+                tries = waitForSpace(tries);
+            }
+            // otherwise another poster claimed the slot, retry with the new position
+        }
+    }
+
+    // }}}
+    // {{{ publish
+
+    private void publish(@NonNull final Slot slot)
+    {
+        slot.sequence = slot.sequence + 1; // volatile write makes the slot content visible to consumers
+
+        if (!this.running) {
+            // the consumers may have stopped before the slot was published
+            while (consumeNext()) {
+                // dispatched on the posting thread
+            }
+        } else if (this.blockedConsumers.get() > 0) {
+            signalConsumers();
+        }
+    }
+
+    // }}}
+    // {{{ consume
+
+    private void consume()
+    {
+        int tries = 0;
+        while (true) {
+            if (consumeNext()) {
+                tries = 0;
+            } else if (!this.running) {
+                // the slots claimed before the shutdown are published shortly
+                if (this.consumeCursor.get() - this.publishCursor.get() >= 0) {
+                    return;
+                }
+                Thread.yield();
+            } else {
+                tries = waitForNotifications(tries);
+            }
+        }
+    }
+
+    // }}}
+    // {{{ consumeNext
+
+    /**
+     * Takes the next published slot and dispatches its notification.
+     *
+     * @return <code>false</code> if no slot is published
+     */
+    private boolean consumeNext()
+    {
+        while (true) {
+            final long position = this.consumeCursor.get();
+            final Slot slot = this.slots[(int) position & this.mask];
+            final long difference = slot.sequence - (position + 1);
+
+            if (difference < 0) {
+                return false; // ring buffer is empty
+            }
+            if (difference == 0 && this.consumeCursor.compareAndSet(position, position + 1)) {
+                final NotificationName notificationName = slot.notificationName;
+                dispatch(notificationName, slot.take(position + this.slots.length));
+                return true;
+            }
+            // otherwise another consumer took the slot, retry with the new position
+        }
+    }
+
+    // }}}
+    // {{{ dispatch
+
+    private void dispatch(@Nullable final NotificationName notificationName, @NonNull final Notification notification)
+    {
+        try {
+            this.dispatcher.post(notificationName, notification);
+        } catch (final Throwable ex) {
+            // an observer failed, even with an error, report it, but keep the consumer running
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+        }
+    }
+
+    // }}}
+    // {{{ waitForSpace
+
+    private int waitForSpace(final int tries)
+    {
+        if (this.waitStrategy == WaitStrategy.BUSY_SPIN || tries < SPIN_TRIES) {
+            // spin
+        } else if (this.waitStrategy == WaitStrategy.YIELDING || tries < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(1);
+        }
+        return tries + 1;
+    }
+
+    // }}}
+    // {{{ waitForNotifications
+
+    private int waitForNotifications(final int tries)
+    {
+        if (this.waitStrategy == WaitStrategy.BUSY_SPIN || tries < SPIN_TRIES) {
+            // spin
+        } else if (this.waitStrategy == WaitStrategy.YIELDING) {
+            Thread.yield();
+        } else {
+            this.lock.lock();
+            try {
+                this.blockedConsumers.incrementAndGet();
+                try {
+                    // re-check under the lock, a poster signals after publishing
+                    if (this.running && isEmpty()) {
+                        this.notEmpty.awaitNanos(BLOCKING_TIMEOUT_NANOS);
+                    }
+                } finally {
+                    this.blockedConsumers.decrementAndGet();
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+        return tries + 1;
+    }
+
+    // }}}
+    // {{{ isEmpty
+
+    private boolean isEmpty()
+    {
+        final long position = this.consumeCursor.get();
+        return this.slots[(int) position & this.mask].sequence - (position + 1) < 0;
+    }
+
+    // }}}
+    // {{{ signalConsumers
+
+    private void signalConsumers()
+    {
+        this.lock.lock();
+        try {
+            this.notEmpty.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // }}}
+
+    /* **************************************************************************
+     * Internal Helper Classes
+     * **************************************************************************
+     */
+
+    // {{{ Slot
+
+    /**
+     * An entry of the ring buffer, reused for all notifications published at
+     * its index.
+     * <p>
+     * The slot at index <i>i</i> is free for publishing at position <i>p</i>
+     * when its sequence is <i>p</i>, and published for consuming when its
+     * sequence is <i>p + 1</i>. Consuming sets it to <i>p + bufferSize</i>,
+     * freeing it for the next round.
+     */
+    private static final class Slot
+    {
+        volatile long sequence;
+
+        @Nullable Notification notification;
+        /** the interned name of the notification, looked up by the poster */
+        @Nullable NotificationName notificationName;
+
+        Slot(final long sequence)
+        {
+            this.sequence = sequence;
+        }
+
+        /**
+         * Takes the published notification out of the slot and frees it.
+         */
+        @NonNull
+        Notification take(final long nextSequence)
+        {
+            final Notification result = this.notification;
+
+            // do not retain the content until the slot is reused
+            this.notification = null;
+            this.notificationName = null;
+
+            this.sequence = nextSequence;
+            return result;
+        }
+    }
+
+    // }}}
+    // {{{ PaddedAtomicLong
+
+    /**
+     * An {@link AtomicLong} padded to its own cache line, so the cursors of
+     * posters and consumers do not invalidate each other's cache lines.
+     */
+    @SuppressWarnings("serial")
+    private static final class PaddedAtomicLong
+            extends AtomicLong
+    {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    // }}}
+
+}
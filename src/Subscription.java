@@ -0,0 +1,54 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+/**
+ * A handle on a single registration in a {@link NotificationCenter}, as
+ * returned when adding an observer.
+ * <p>
+ * Cancelling the subscription removes exactly this registration, other
+ * registrations of the same observer are kept. This is cheaper than
+ * {@link NotificationCenter#removeObserver(Observer, String, Object)}, since
+ * no search is required.
+ *
+ */
+public interface Subscription
+{
+    /**
+     * Removes the registration from the dispatch table. The observer does not
+     * receive notifications posted after this call returns.
+     * <p>
+     * Cancelling is idempotent and may be called concurrently to posting.
+     */
+    public abstract void cancel();
+
+    /**
+     * @return <code>true</code> if the registration has been removed, either
+     *         by {@link #cancel()}, by removing the observer, or because a
+     *         weakly referenced observer or sender has been collected.
+     */
+    public abstract boolean isCancelled();
+
+}
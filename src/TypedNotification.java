@@ -0,0 +1,97 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+// }}}
+
+/**
+ * A {@link Notification} carrying a single typed object, the <i>payload</i>,
+ * instead of a key-value map. {@link TypedObserver}s receive the payload
+ * directly, without lookups and casts.
+ * <p>
+ * Other observers find the payload in the userInfo, under the key
+ * {@link #PAYLOAD_KEY}. The userInfo is only created when it is requested.
+ *
+ */
+@ToString(exclude = "userInfo")
+public class TypedNotification<T>
+        implements Notification
+{
+
+    // {{{ constants
+
+    /** the key of the payload in the userInfo */
+    public static final String PAYLOAD_KEY = "payload";
+
+    // }}}
+    // {{{ variables
+
+    @Getter @NonNull final String name;
+    @Getter @Nullable final Object object;
+    @Getter @NonNull final T payload;
+
+    @Nullable private volatile Map<String, Object> userInfo;
+
+    // }}}
+    // {{{ constructor
+
+    public TypedNotification(@NonNull final String name, @Nullable final Object object, @NonNull final T payload)
+    {
+        this.name = name;
+        this.object = object;
+        this.payload = payload;
+    }
+
+    // }}}
+    // {{{ getUserInfo
+
+    /**
+     * @return A map containing the payload under the key {@link #PAYLOAD_KEY}
+     */
+    @Override
+    public Map<String, Object> getUserInfo()
+    {
+        Map<String, Object> result = this.userInfo;
+        if (result == null) {
+            final CompactMap.Builder builder = new CompactMap.Builder(1);
+            builder.put(PAYLOAD_KEY, this.payload);
+            this.userInfo = result = builder.build();
+        }
+        return result;
+    }
+
+    // }}}
+
+}
@@ -0,0 +1,101 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import lombok.Getter;
+import lombok.NonNull;
+
+// }}}
+
+/**
+ * An {@link Observer} receiving the payload of notifications as a typed object,
+ * see {@link TypedNotification}. It is registered as any other observer:
+ *
+ * <pre>
+ * center.addObserver(new TypedObserver&lt;Quote&gt;(Quote.class) {
+ *     public void receivedPayload(Notification notification, Quote quote) {
+ *         ...
+ *     }
+ * }, "QUOTE");
+ * </pre>
+ *
+ * For notifications which are not {@link TypedNotification}s, the payload is
+ * taken from the userInfo, under the key {@link TypedNotification#PAYLOAD_KEY}.
+ * Notifications without a payload of the expected type are ignored.
+ *
+ */
+public abstract class TypedObserver<T>
+        implements Observer
+{
+
+    // {{{ variables
+
+    @Getter @NonNull private final Class<T> payloadType;
+
+    // }}}
+    // {{{ constructor
+
+    protected TypedObserver(@NonNull final Class<T> payloadType)
+    {
+        this.payloadType = payloadType;
+    }
+
+    // }}}
+    // {{{ receivedNotification
+
+    @Override
+    public final void receivedNotification(final Notification notification)
+    {
+        final Object payload;
+        if (notification instanceof TypedNotification) {
+            payload = ((TypedNotification<?>) notification).getPayload();
+        } else {
+            payload = notification.getUserInfo().get(TypedNotification.PAYLOAD_KEY);
+        }
+
+        if (this.payloadType.isInstance(payload)) {
+            receivedPayload(notification, this.payloadType.cast(payload));
+        }
+    }
+
+    // }}}
+    // {{{ receivedPayload
+
+    /**
+     * Called when a notification with a payload of the expected type is
+     * posted.
+     *
+     * @param notification
+     *            The notification carrying the payload
+     * @param payload
+     *            The payload
+     */
+    public abstract void receivedPayload(@NonNull Notification notification, @NonNull T payload);
+
+    // }}}
+
+}
@@ -0,0 +1,51 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+/**
+ * Defines how the threads of a {@link RingBufferNotificationCenter} wait for
+ * work: consumers for new notifications, posters for free slots.
+ *
+ */
+public enum WaitStrategy
+{
+    /**
+     * Spin in a tight loop. Gives the lowest latency, but burns a CPU core per
+     * waiting thread. Only use it with dedicated cores.
+     */
+    BUSY_SPIN,
+
+    /**
+     * Spin shortly, then yield the CPU to other threads. Good latency at the
+     * cost of CPU usage while idle.
+     */
+    YIELDING,
+
+    /**
+     * Spin shortly, then block until signalled by a poster. Does not use CPU
+     * while idle, but waking the consumers adds latency.
+     */
+    BLOCKING;
+}
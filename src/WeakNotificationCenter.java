@@ -49,8 +49,10 @@ public interface WeakNotificationCenter
      * collect can remove the object, and the observer is removed from the
      * dispatch table.
      *
+     * @return The subscription, which can be cancelled to remove only this
+     *         registration. It does not retain the observer.
      */
-    public abstract void addWeakObserver(@NonNull final Observer observer, @Nullable final String notificationName,
-                                         @Nullable final Object notificationSender);
+    public abstract Subscription addWeakObserver(@NonNull final Observer observer, @Nullable final String notificationName,
+                                                 @Nullable final Object notificationSender);
 
 }
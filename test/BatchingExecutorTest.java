@@ -0,0 +1,149 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// }}}
+
+public class BatchingExecutorTest
+{
+    ExecutorService executor;
+    AtomicInteger failures;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        failures = new AtomicInteger();
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable);
+                thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                    @Override
+                    public void uncaughtException(Thread t, Throwable e)
+                    {
+                        failures.incrementAndGet();
+                    }
+                });
+                return thread;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRunsTasksInOrder() throws Exception
+    {
+        final BatchingExecutor batching = new BatchingExecutor(executor);
+        final StringBuffer ran = new StringBuffer();
+        final CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < BatchingExecutor.BATCH_SIZE * 2; i++) {
+            final int index = i;
+            batching.execute(new Runnable() {
+                @Override
+                public void run()
+                {
+                    ran.append(index).append(' ');
+                }
+            });
+        }
+        batching.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(ran.toString().startsWith("0 1 2 "));
+        assertTrue(ran.toString().endsWith(" " + (BatchingExecutor.BATCH_SIZE * 2 - 1) + " "));
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStopExecutor() throws Exception
+    {
+        final BatchingExecutor batching = new BatchingExecutor(executor);
+        final CountDownLatch done = new CountDownLatch(2);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run()
+            {
+                done.countDown();
+            }
+        };
+
+        batching.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                throw new AssertionError("Failing task");
+            }
+        });
+        batching.execute(task);
+        // wait for the batch to end
+        executor.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+            }
+        }).get(10, TimeUnit.SECONDS);
+        assertEquals(1, failures.get());
+
+        // the batch ended, later tasks start a new one
+        batching.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                throw new RuntimeException("Failing task");
+            }
+        });
+        batching.execute(task);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, failures.get());
+    }
+
+}
@@ -0,0 +1,109 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+// }}}
+
+public class CompactMapTest
+{
+    @Test
+    public void testGet()
+    {
+        final Map<String, Object> map = DefaultNotificationCenter.createUserInfo("Foo", "Bar", "Blubber", null);
+
+        assertEquals(2, map.size());
+        assertEquals("Bar", map.get("Foo"));
+        assertNull(map.get("Blubber"));
+        assertTrue(map.containsKey("Blubber"));
+        assertFalse(map.containsKey("Schnitzel"));
+        assertNull(map.get(null));
+        assertNull(map.get(1));
+    }
+
+    @Test
+    public void testManyEntries()
+    {
+        final Map<String, Object> expected = new HashMap<String, Object>();
+        for (int i = 0; i < 1000; i++) {
+            expected.put("Key " + i, i);
+        }
+        expected.put(null, "null key");
+
+        final Map<String, Object> map = CompactMap.copyOf(expected);
+
+        assertEquals(1001, map.size());
+        for (final Map.Entry<String, Object> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        final Map<String, Object> map = CompactMap.copyOf(new HashMap<String, Object>());
+
+        assertSame(CompactMap.EMPTY, map);
+        assertEquals(0, map.size());
+        assertNull(map.get("Foo"));
+        assertFalse(map.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    public void testCopyOfCompactMap()
+    {
+        final Map<String, Object> map = DefaultNotificationCenter.createUserInfo("Foo", "Bar");
+
+        assertSame(map, CompactMap.copyOf(map));
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testUnmodifieable()
+    {
+        final Map<String, Object> map = DefaultNotificationCenter.createUserInfo("Foo", "Bar");
+
+        map.put("Blubber", "Schnitzel");
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testUnmodifieableEntry()
+    {
+        final Map<String, Object> map = DefaultNotificationCenter.createUserInfo("Foo", "Bar");
+
+        map.entrySet().iterator().next().setValue("Schnitzel");
+    }
+
+}
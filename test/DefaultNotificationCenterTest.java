@@ -29,8 +29,21 @@
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -66,6 +79,9 @@ public class DefaultNotificationCenterTest
 
         center = DefaultNotificationCenter.instance();
         center.observers.clear(); // make sure no observers are registered
+        center.setAsyncExecutor(null);
+        center.setMetricsEnabled(false);
+        center.setWatchdog(null);
     }
 
     @Test
@@ -198,6 +214,71 @@ public class DefaultNotificationCenterTest
         assertEquals(0,center.observers.size());
     }
 
+    @Test
+    public void testObserversAreCalledByPriority() throws Exception
+    {
+        final StringBuilder calls = new StringBuilder();
+        final String[] names = { "A", "B", "C", "D", "E" };
+        final int[] priorities = { 0, 10, 0, -5, 10 };
+        for (int i = 0; i < names.length; i++) {
+            final String name = names[i];
+            final Observer recorder = new Observer() {
+                @Override
+                public void receivedNotification(Notification notification)
+                {
+                    calls.append(name);
+                }
+            };
+            final ObserverOptions options = ObserverOptions.builder().priority(priorities[i]).build();
+            if (i % 2 == 0) {
+                center.addObserver(recorder, "Test", null, options);
+            } else {
+                center.addWeakObserver(recorder, null, this, options);
+                center.addObserver(recorder, "Other", null, options); // retain it
+            }
+        }
+
+        center.postNotification("Test");
+        center.postNotification("Test", this);
+
+        assertEquals("BEACDBEACD", calls.toString());
+    }
+
+    @Test
+    public void testAddObserverWithManySenders() throws Exception
+    {
+        final Object[] senders = new Object[1000];
+        final int[] calls = new int[senders.length];
+        for (int i = 0; i < senders.length; i++) {
+            final int index = i;
+            senders[i] = new Object();
+            center.addObserver(new Observer() {
+                @Override
+                public void receivedNotification(Notification notification)
+                {
+                    calls[index]++;
+                }
+            }, "Some event", senders[i]);
+        }
+        center.addObserver(countingObserver, "Some event");
+
+        center.postNotification("Some event", senders[42]);
+        center.postNotification("Some event", this);
+
+        for (int i = 0; i < senders.length; i++) {
+            assertEquals(i == 42 ? 1 : 0, calls[i]);
+        }
+        assertEquals(2, callCount);
+
+        // without sender, all observers are called
+        center.postNotification("Some event");
+
+        for (int i = 0; i < senders.length; i++) {
+            assertEquals(i == 42 ? 2 : 1, calls[i]);
+        }
+        assertEquals(3, callCount);
+    }
+
     @Test
     public void testAddWeakObserver() throws Exception
     {
@@ -215,6 +296,26 @@ public class DefaultNotificationCenterTest
         assertEquals(1,callCount);
     }
 
+    @Test
+    public void testCollectedObserversAreReapedWithoutPosting() throws Exception
+    {
+        center.addWeakObserver(countingObserver,"Rare event");
+        center.addObserver(observer,"Other event",new Object());
+
+        assertEquals(2,center.observers.size());
+
+        countingObserver = null;
+
+        // posting another name reaps the collected observer and sender
+        for (int i = 0; i < 100 && center.observers.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+            center.postNotification("Some event");
+        }
+
+        assertEquals(0,center.observers.size());
+    }
+
     @Test
     public void testRemoveObserver() throws Exception
     {
@@ -305,6 +406,141 @@ public class DefaultNotificationCenterTest
 
 
 
+    @Test
+    public void testRemoveObserverWithManyNames() throws Exception
+    {
+        for (int i = 0; i < 100; i++) {
+            center.addObserver(observer, "Test " + i);
+            center.addWeakObserver(observer, "Test " + i, this);
+            center.addObserver(countingObserver, "Test " + i);
+        }
+        center.addObserver(observer);
+
+        center.removeObserver(observer);
+
+        for (int i = 0; i < 100; i++) {
+            center.postNotification("Test " + i, this);
+        }
+
+        verify(observer, never()).receivedNotification(captor.capture());
+
+        assertEquals(100, callCount);
+        assertEquals(100, center.observers.size());
+    }
+
+    @Test
+    public void testCancelSubscription() throws Exception
+    {
+        final Subscription subscription = center.addObserver(observer, "Test");
+        center.addObserver(observer, "Test", this);
+        center.addObserver(countingObserver, "Test");
+
+        assertFalse(subscription.isCancelled());
+
+        subscription.cancel();
+        subscription.cancel();
+
+        assertTrue(subscription.isCancelled());
+
+        center.postNotification("Test",this);
+
+        verify(observer, times(1)).receivedNotification(captor.capture());
+        assertEquals(1, callCount);
+    }
+
+    @Test
+    public void testCancelledSubscriptionReleasesObserver() throws Exception
+    {
+        center.addObserver(observer, "Test");
+        center.addObserver(countingObserver, "Test");
+        Observer cancelled = new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+            }
+        };
+        final WeakReference<Observer> cancelledReference = new WeakReference<Observer>(cancelled);
+
+        // a single cancelled registration of three does not compact the list
+        center.addObserver(cancelled, "Test").cancel();
+        assertEquals(3, center.observers.elements().nextElement().get().length);
+
+        cancelled = null;
+        for (int i = 0; i < 100 && cancelledReference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(cancelledReference.get());
+
+        center.postNotification("Test");
+        assertEquals(1, callCount);
+    }
+
+    @Test
+    public void testCancelAllSubscriptions() throws Exception
+    {
+        final List<Subscription> subscriptions = new ArrayList<Subscription>();
+        for (int i = 0; i < 100; i++) {
+            subscriptions.add(center.addWeakObserver(countingObserver, "Test"));
+        }
+
+        for (final Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+
+        center.postNotification("Test");
+
+        assertEquals(0, callCount);
+        assertEquals(0, center.observers.size());
+    }
+
+    @Test
+    public void testRemoveObserverCancelsSubscription() throws Exception
+    {
+        final Subscription subscription = center.addObserver(observer, "Test");
+
+        center.removeObserver(observer);
+
+        assertTrue(subscription.isCancelled());
+    }
+
+    @Test
+    public void testAddObserverAfterListWasDropped() throws Exception
+    {
+        center.addObserver(countingObserver, "Test");
+        center.removeObserver(countingObserver, "Test");
+
+        assertEquals(0, center.observers.size());
+
+        center.addObserver(observer, "Test");
+        center.postNotification("Test");
+
+        verify(observer, times(1)).receivedNotification(captor.capture());
+        assertEquals(0, callCount);
+    }
+
+    @Test
+    public void testObserversAreCalledInRegistrationOrder() throws Exception
+    {
+        final StringBuilder calls = new StringBuilder();
+        final String[] ids = new String[]{"A", "B", "C", "D"};
+        for (int i = 0; i < ids.length; i++) {
+            final String id = ids[i];
+            center.addObserver(new Observer() {
+                @Override
+                public void receivedNotification(Notification notification)
+                {
+                    calls.append(id);
+                }
+            }, i % 2 == 0 ? null : "Test");
+        }
+
+        center.postNotification("Test");
+        center.postNotification("Other");
+
+        assertEquals("ABCDAC", calls.toString());
+    }
+
     @Test
     public void testPostNotification() throws Exception
     {
@@ -400,6 +636,86 @@ public class DefaultNotificationCenterTest
         assertEquals("bar",captor.getValue().getUserInfo().get("foo"));
     }
 
+    @Test
+    public void testPostNotificationWithNotificationName() throws Exception
+    {
+        final NotificationName name = NotificationName.of("Some event");
+        assertSame(name, NotificationName.of("Some event"));
+        assertNotSame(name.getId(), NotificationName.of("Some other event").getId());
+
+        Object that = new Object();
+        center.addObserver(observer, "Some event", that);
+        center.addObserver(countingObserver);
+
+        center.postNotification(name, that, DefaultNotificationCenter.createUserInfo("foo", "bar"));
+        center.postNotification(name, this);
+        center.postNotification(NotificationName.of("Some other event"));
+
+        verify(observer, times(1)).receivedNotification(captor.capture());
+        assertEquals("Some event", captor.getValue().getName());
+        assertEquals(that, captor.getValue().getObject());
+        assertEquals("bar", captor.getValue().getUserInfo().get("foo"));
+        assertEquals(3, callCount);
+    }
+
+    @Test
+    public void testPostNotificationWithUnobservedName() throws Exception
+    {
+        center.addObserver(observer);
+
+        center.postNotification("Never observed " + System.nanoTime());
+
+        verify(observer, times(1)).receivedNotification(captor.capture());
+    }
+
+    @Test
+    public void testChannel() throws Exception
+    {
+        final NotificationChannel channel = center.channel("Some event");
+        assertEquals("Some event", channel.getName().getName());
+        assertFalse(channel.hasObservers());
+
+        Object that = new Object();
+        center.addObserver(observer, "Some event", that);
+        assertTrue(channel.hasObservers());
+
+        channel.post(that, DefaultNotificationCenter.createUserInfo("foo", "bar"));
+        channel.post(this);
+
+        verify(observer, times(1)).receivedNotification(captor.capture());
+        assertEquals("Some event", captor.getValue().getName());
+        assertEquals(that, captor.getValue().getObject());
+        assertEquals("bar", captor.getValue().getUserInfo().get("foo"));
+
+        // the list of the name is dropped and created again
+        center.removeObserver(observer);
+        assertFalse(channel.hasObservers());
+        center.addObserver(countingObserver, "Some event");
+        center.addObserver(countingObserver);
+        assertTrue(channel.hasObservers());
+
+        channel.post();
+
+        assertEquals(2, callCount);
+    }
+
+    @Test
+    public void testChannelSkipsCancelledObservers() throws Exception
+    {
+        final NotificationChannel channel = center.channel("Some event");
+        final Subscription cancelled = center.addObserver(countingObserver, "Some event");
+        center.addObserver(observer, "Some event");
+        center.addObserver(observer, "Some event", this);
+
+        // a single cancelled registration of three is not compacted
+        cancelled.cancel();
+        assertTrue(channel.hasObservers());
+
+        center.removeObserver(observer);
+        assertEquals(1, center.observers.get(NotificationName.of("Some event")).get().length);
+        assertFalse(channel.hasObservers());
+    }
+
     @Test
     public void testPostNotificationWithCustomNotification() throws Exception
     {
@@ -439,6 +755,650 @@ public class DefaultNotificationCenterTest
         assertEquals(hashMap, captor.getValue().getUserInfo());
     }
 
+    @Test
+    public void testPostNotificationAsync() throws Exception
+    {
+        final Thread postingThread = Thread.currentThread();
+        final Thread[] receivingThread = new Thread[1];
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                receivingThread[0] = Thread.currentThread();
+            }
+        });
+
+        final Future<Notification> future = center.postNotificationAsync("Some event", this, "foo", "bar");
+
+        final Notification notification = future.get(10, TimeUnit.SECONDS);
+        assertEquals("Some event", notification.getName());
+        assertEquals(this, notification.getObject());
+        assertEquals("bar", notification.getUserInfo().get("foo"));
+        assertNotNull(receivingThread[0]);
+        assertNotSame(postingThread, receivingThread[0]);
+    }
+
+    @Test
+    public void testPostNotificationAsyncUsesExecutor() throws Exception
+    {
+        final int[] executionCount = new int[]{0};
+        center.setAsyncExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command)
+            {
+                executionCount[0]++;
+                command.run();
+            }
+        });
+
+        Object that = new Object();
+        center.addObserver(observer, "Some event", that);
+
+        center.postNotificationAsync("Some event", this).get();
+        center.postNotificationAsync("Some event", that).get();
+        center.postNotificationAsync("Some other event", that).get();
+
+        assertEquals(3, executionCount[0]);
+        verify(observer, times(1)).receivedNotification(captor.capture());
+        assertEquals(that, captor.getValue().getObject());
+    }
+
+    @Test
+    public void testPostNotificationAsyncReportsFailure() throws Exception
+    {
+        final RuntimeException failure = new RuntimeException("Failing observer");
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                throw failure;
+            }
+        });
+
+        try {
+            center.postNotificationAsync("Some event").get(10, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (final ExecutionException ex) {
+            assertSame(failure, ex.getCause());
+        }
+    }
+
+    @Test
+    public void testVirtualThreadDeliveryRunsObserversConcurrently() throws Exception
+    {
+        final int observerCount = 20;
+        final int[] blockingCallCount = new int[]{0};
+        final ObserverOptions options = ObserverOptions.builder().deliveryMode(DeliveryMode.VIRTUAL_THREAD).build();
+
+        for (int i = 0; i < observerCount; i++) {
+            center.addObserver(new Observer() {
+                @Override
+                public void receivedNotification(Notification notification)
+                {
+                    try {
+                        Thread.sleep(200);
+                    } catch (final InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    synchronized (blockingCallCount) {
+                        blockingCallCount[0]++;
+                    }
+                }
+            }, "Blocking event", null, options);
+        }
+        center.addObserver(countingObserver, "Blocking event");
+
+        final long start = System.nanoTime();
+        center.postNotification("Blocking event");
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        synchronized (blockingCallCount) {
+            assertEquals(observerCount, blockingCallCount[0]); // post waits for all observers
+        }
+        assertEquals(1, callCount);
+        assertTrue("Observers did not run concurrently: " + elapsedMillis + "ms", elapsedMillis < observerCount * 100);
+    }
+
+    @Test
+    public void testVirtualThreadDeliveryRethrowsFailure() throws Exception
+    {
+        final RuntimeException failure = new RuntimeException("Failing observer");
+        // registered strongly, so it cannot be collected before the post
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                throw failure;
+            }
+        }, null, null, ObserverOptions.builder().deliveryMode(DeliveryMode.VIRTUAL_THREAD).build());
+
+        try {
+            center.postNotification("Some event");
+            fail("Expected observer failure");
+        } catch (final RuntimeException ex) {
+            assertSame(failure, ex);
+        }
+    }
+
+    @Test
+    public void testVirtualThreadDeliveryAwaitedWhenObserverFails() throws Exception
+    {
+        final RuntimeException failure = new RuntimeException("Failing observer");
+        final List<Object> received = new CopyOnWriteArrayList<Object>();
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                try {
+                    Thread.sleep(100);
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add(notification.getUserInfo().get("count"));
+            }
+        }, "Test", null, ObserverOptions.builder().deliveryMode(DeliveryMode.VIRTUAL_THREAD).build());
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                throw failure;
+            }
+        }, "Test");
+
+        try {
+            center.postNotification(PooledNotification.obtain(NotificationName.of("Test"), this).put("count", 1));
+            fail("Expected observer failure");
+        } catch (final RuntimeException ex) {
+            assertSame(failure, ex);
+        }
+
+        // the pooled notification was only recycled after the concurrent delivery
+        assertEquals(1, received.size());
+        assertEquals(1, received.get(0));
+    }
+
+    @Test
+    public void testThrottle() throws Exception
+    {
+        // an interval far beyond the burst, so all but the first post are dropped
+        final AtomicInteger burstCount = new AtomicInteger();
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                burstCount.incrementAndGet();
+            }
+        }, "Burst", null, ObserverOptions.builder().rateLimit(RateLimit.THROTTLE).rateLimitInterval(60000).build());
+
+        for (int i = 0; i < 100; i++) {
+            center.postNotification("Burst");
+        }
+
+        assertEquals(1, burstCount.get());
+
+        // posting again is delivered once the interval passed, but never earlier
+        center.addObserver(countingObserver, "Test", null,
+                ObserverOptions.builder().rateLimit(RateLimit.THROTTLE).rateLimitInterval(200).build());
+        final long start = System.nanoTime();
+        center.postNotification("Test");
+        assertEquals(1, callCount);
+
+        for (int i = 0; i < 1000 && callCount < 2; i++) {
+            Thread.sleep(10);
+            center.postNotification("Test");
+        }
+
+        assertEquals(2, callCount);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testDebounce() throws Exception
+    {
+        final List<Notification> received = new CopyOnWriteArrayList<Notification>();
+        final long[] receivedTime = new long[1];
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                receivedTime[0] = System.nanoTime();
+                received.add(notification);
+            }
+        }, "Test", null, ObserverOptions.builder().rateLimit(RateLimit.DEBOUNCE).rateLimitInterval(1000).build());
+
+        // the posts take far less than the interval, so each one restarts it
+        long lastPostTime = 0;
+        for (int i = 0; i < 10; i++) {
+            lastPostTime = System.nanoTime();
+            center.postNotification("Test", this, "count", i);
+            Thread.sleep(10);
+        }
+
+        for (int i = 0; i < 1000 && received.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+
+        assertEquals(1, received.size());
+        assertEquals(9, received.get(0).getUserInfo().get("count"));
+        // delivered only after the interval passed without posts
+        assertTrue(receivedTime[0] - lastPostTime >= TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
+    @Test
+    public void testSample() throws Exception
+    {
+        final List<Notification> received = new CopyOnWriteArrayList<Notification>();
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received.add(notification);
+            }
+        }, "Test", null, ObserverOptions.builder().rateLimit(RateLimit.SAMPLE).rateLimitInterval(500).build());
+
+        // pooled notifications are copied for the later delivery
+        final NotificationName test = NotificationName.of("Test");
+        for (int i = 0; i < 5; i++) {
+            center.postNotification(PooledNotification.obtain(test, this).put("count", i));
+        }
+
+        for (int i = 0; i < 1000 && received.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(300);
+
+        assertEquals(1, received.size());
+        assertEquals(4, received.get(0).getUserInfo().get("count"));
+        assertEquals(this, received.get(0).getObject());
+    }
+
+    @Test
+    public void testRateLimitRecoversFromRejectedHandOver() throws Exception
+    {
+        final AtomicInteger rejections = new AtomicInteger(1);
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command)
+            {
+                if (rejections.getAndDecrement() > 0) {
+                    throw new RejectedExecutionException("Shut down");
+                }
+                command.run();
+            }
+        };
+        final List<Notification> received = new CopyOnWriteArrayList<Notification>();
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received.add(notification);
+            }
+        }, "Test", null, ObserverOptions.builder().rateLimit(RateLimit.SAMPLE).rateLimitInterval(50)
+                .executor(executor).build());
+
+        center.postNotification("Test", this, "count", 1);
+        for (int i = 0; i < 100 && rejections.get() >= 0; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertEquals(0, received.size());
+
+        // the rejected hand-over does not leave the limiter stuck
+        center.postNotification("Test", this, "count", 2);
+        for (int i = 0; i < 100 && received.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, received.size());
+        assertEquals(2, received.get(0).getUserInfo().get("count"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testRateLimitNeedsInterval() throws Exception
+    {
+        ObserverOptions.builder().rateLimit(RateLimit.DEBOUNCE).build();
+    }
+
+    @Test
+    public void testWildcardObservers() throws Exception
+    {
+        final StringBuilder received = new StringBuilder();
+        for (final String pattern : new String[] { "orders.*.filled", "orders.#", "#", "orders.eu.*", "stock.#" }) {
+            center.addObserver(new Observer() {
+                @Override
+                public void receivedNotification(Notification notification)
+                {
+                    received.append(pattern).append(' ');
+                }
+            }, pattern);
+        }
+
+        center.postNotification("orders.eu.filled");
+        assertEquals("orders.*.filled orders.# # orders.eu.* ", received.toString());
+
+        // # matches no segment, too
+        received.setLength(0);
+        center.postNotification("orders");
+        assertEquals("orders.# # ", received.toString());
+
+        received.setLength(0);
+        center.postNotification("orders.us.cancelled.late");
+        assertEquals("orders.# # ", received.toString());
+
+        // interned names use the cached match
+        final NotificationName name = NotificationName.of("orders.us.filled");
+        for (int i = 0; i < 2; i++) {
+            received.setLength(0);
+            center.postNotification(PooledNotification.obtain(name));
+            assertEquals("orders.*.filled orders.# # ", received.toString());
+        }
+    }
+
+    @Test
+    public void testWildcardMatchesOfStringNamesFollowChanges() throws Exception
+    {
+        final StringBuilder received = new StringBuilder();
+        final Observer observer = new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received.append(notification.getName()).append(' ');
+            }
+        };
+        center.addObserver(observer, "orders.*.filled");
+
+        // the match of the name, which is not interned, is cached
+        center.postNotification("orders.eu.filled");
+        center.postNotification("orders.eu.filled");
+        assertEquals("orders.eu.filled orders.eu.filled ", received.toString());
+
+        received.setLength(0);
+        center.addObserver(observer, "orders.eu.#");
+        center.postNotification("orders.eu.filled");
+        assertEquals("orders.eu.filled orders.eu.filled ", received.toString());
+
+        received.setLength(0);
+        center.removeObserver(observer, "orders.*.filled");
+        center.removeObserver(observer, "orders.eu.#");
+        center.postNotification("orders.eu.filled");
+        assertEquals("", received.toString());
+    }
+
+    @Test
+    public void testWildcardObserversWithExactObservers() throws Exception
+    {
+        final StringBuilder received = new StringBuilder();
+        final Observer wildcard = new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received.append("W");
+            }
+        };
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received.append("E");
+            }
+        }, "trades.fx");
+        center.addObserver(wildcard, "trades.*");
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received.append("A");
+            }
+        });
+
+        // called in the order of registration
+        center.postNotification("trades.fx");
+        assertEquals("EWA", received.toString());
+
+        // a pattern posted as a name reaches its observers once
+        received.setLength(0);
+        center.postNotification("trades.*");
+        assertEquals("WA", received.toString());
+
+        // the match is updated when the pattern is removed
+        received.setLength(0);
+        center.removeObserver(wildcard, "trades.*");
+        center.postNotification("trades.fx");
+        assertEquals("EA", received.toString());
+
+        received.setLength(0);
+        center.addObserver(wildcard, "trades.#");
+        center.channel("trades.fx").post();
+        assertEquals("EAW", received.toString());
+        assertTrue(center.channel("trades.bonds").hasObservers());
+    }
+
+    @Test
+    public void testFilteredObservers() throws Exception
+    {
+        final StringBuilder received = new StringBuilder();
+        final Object[][] filters = {
+                { "eu", NotificationFilters.equalTo("region", "eu") },
+                { "us", NotificationFilters.equalTo("region", "us") },
+                { "none", NotificationFilters.equalTo("region", null) },
+                { "big", NotificationFilters.between("quantity", 100, null) },
+                { "odd", new NotificationFilter() {
+                    @Override
+                    public boolean matches(Notification notification)
+                    {
+                        final Object quantity = NotificationFilters.getValue(notification, "quantity");
+                        return quantity instanceof Integer && ((Integer) quantity) % 2 == 1;
+                    }
+                } },
+                { "eu-small", NotificationFilters.equalTo("region", "eu") },
+        };
+        for (final Object[] filter : filters) {
+            final ObserverOptions options = ObserverOptions.builder().filter((NotificationFilter) filter[1])
+                    .priority(filter[0].equals("eu-small") ? 1 : 0).build();
+            center.addObserver(new Observer() {
+                @Override
+                public void receivedNotification(Notification notification)
+                {
+                    received.append(filter[0]).append(' ');
+                }
+            }, "Test", null, options);
+        }
+
+        center.postNotification("Test", null, "region", "eu", "quantity", 10);
+        assertEquals("eu-small eu ", received.toString());
+
+        received.setLength(0);
+        center.postNotification("Test", null, "region", "us", "quantity", 101);
+        assertEquals("us big odd ", received.toString());
+
+        received.setLength(0);
+        center.postNotification("Test", null, "quantity", 7);
+        assertEquals("none odd ", received.toString());
+
+        // values of another type are not in range
+        received.setLength(0);
+        center.postNotification("Test", null, "region", "asia", "quantity", 1000L);
+        assertEquals("", received.toString());
+    }
+
+    @Test
+    public void testFilteredObserversWithSender() throws Exception
+    {
+        final Object sender = new Object();
+        center.addObserver(observer, "Test", sender,
+                ObserverOptions.builder().filter(NotificationFilters.equalTo("region", "eu")).build());
+
+        center.postNotification("Test", new Object(), "region", "eu");
+        center.postNotification("Test", sender, "region", "us");
+        verify(observer, never()).receivedNotification(any(Notification.class));
+
+        center.postNotification("Test", sender, "region", "eu");
+        verify(observer).receivedNotification(any(Notification.class));
+    }
+
+    @Test
+    public void testMetrics() throws Exception
+    {
+        assertNull(center.getMetrics());
+        center.postNotification("Test");
+
+        center.setMetricsEnabled(true);
+        final Subscription slow = center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                try {
+                    Thread.sleep(5);
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "Test");
+        center.addObserver(observer, "Test", this);
+        center.addObserver(observer, "Other");
+
+        center.postNotification("Test", this);
+        center.postNotification("Test", this);
+        center.postNotification("Test", new Object());
+        center.postNotification("Other");
+
+        final MetricsSnapshot metrics = center.getMetrics();
+        assertEquals(3, metrics.getName("Test").getPostCount());
+        assertEquals(5, metrics.getName("Test").getDeliveryCount());
+        assertEquals(2, metrics.getName("Test").getMaxFanOut());
+        assertEquals(5.0 / 3, metrics.getName("Test").getAverageFanOut(), 0.001);
+        assertEquals(1, metrics.getName("Other").getPostCount());
+        assertNull(metrics.getName("Unobserved"));
+
+        assertEquals(3, metrics.getObservers().size());
+        for (final MetricsSnapshot.ObserverMetrics observerMetrics : metrics.getObservers()) {
+            if (observerMetrics.getSubscription() == slow) {
+                assertEquals("Test", observerMetrics.getNotificationName());
+                assertEquals(3, observerMetrics.getLatency().getCount());
+                assertTrue(observerMetrics.getLatency().getPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(5));
+            } else {
+                assertSame(observer, observerMetrics.getObserver());
+            }
+        }
+
+        // enabling again starts a new recording
+        center.setMetricsEnabled(true);
+        assertTrue(center.getMetrics().getNames().isEmpty());
+        assertTrue(center.getMetrics().getObservers().isEmpty());
+
+        center.setMetricsEnabled(false);
+        assertNull(center.getMetrics());
+    }
+
+    @Test
+    public void testMetricsOfNamesOnlyObservedForAnyName() throws Exception
+    {
+        center.setMetricsEnabled(true);
+        center.addObserver(countingObserver, null);
+
+        center.postNotification("Metrics.onlyObservedForAnyName");
+        center.postNotification("Metrics.onlyObservedForAnyName", this);
+
+        assertEquals(2, callCount);
+        final MetricsSnapshot.NameMetrics metrics = center.getMetrics().getName("Metrics.onlyObservedForAnyName");
+        assertNotNull(metrics);
+        assertEquals(2, metrics.getPostCount());
+        assertEquals(2, metrics.getDeliveryCount());
+        assertEquals(1, metrics.getMaxFanOut());
+        assertNull(NotificationName.find("Metrics.onlyObservedForAnyName"));
+    }
+
+    @Test
+    public void testMetricsOfUninternedNamesAreBounded() throws Exception
+    {
+        center.setMetricsEnabled(true);
+        center.addObserver(countingObserver, null);
+
+        final int count = DispatchMetrics.MAX_UNINTERNED_NAMES + 10;
+        for (int i = 0; i < count; i++) {
+            center.postNotification("Metrics.dynamic." + i);
+        }
+
+        final MetricsSnapshot metrics = center.getMetrics();
+        assertEquals(count, callCount);
+        assertEquals(DispatchMetrics.MAX_UNINTERNED_NAMES, metrics.getNames().size());
+        assertEquals(10, metrics.getOtherNames().getPostCount());
+        assertEquals(10, metrics.getOtherNames().getDeliveryCount());
+        assertEquals(MetricsSnapshot.OTHER_NAMES, metrics.getOtherNames().getName());
+    }
+
+    @Test
+    public void testObserverExecutor() throws Exception
+    {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Thread thread = executor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call()
+                {
+                    return Thread.currentThread();
+                }
+            }).get();
+
+            final List<String> received = new CopyOnWriteArrayList<String>();
+            final Observer observer = new Observer() {
+                @Override
+                public void receivedNotification(Notification notification)
+                {
+                    received.add(notification.getUserInfo().get("count") + "@"
+                            + (Thread.currentThread() == thread ? "executor" : "other"));
+                }
+            };
+            center.addObserver(observer, "Test", null, executor);
+
+            for (int i = 0; i < 3; i++) {
+                center.postNotification(PooledNotification.obtain(NotificationName.of("Test")).put("count", i));
+            }
+            executor.submit(new Runnable() { @Override public void run() {} }).get();
+
+            assertEquals("[0@executor, 1@executor, 2@executor]", received.toString());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testObserverExecutorBatchesDeliveries() throws Exception
+    {
+        final List<Runnable> submitted = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command)
+            {
+                submitted.add(command);
+            }
+        };
+
+        final StringBuilder received = new StringBuilder();
+        for (final String name : new String[] { "A", "B", "C" }) {
+            center.addObserver(new Observer() {
+                @Override
+                public void receivedNotification(Notification notification)
+                {
+                    received.append(name);
+                }
+            }, "Test", null, executor);
+        }
+        for (int i = 0; i < 4; i++) {
+            center.postNotification("Test");
+        }
+
+        // all deliveries are handed over by a single task
+        assertEquals(1, submitted.size());
+        submitted.remove(0).run();
+        assertEquals("ABCABCABCABC", received.toString());
+        assertTrue(submitted.isEmpty());
+
+        center.postNotification("Test");
+        assertEquals(1, submitted.size());
+    }
+
     @Test
     public void testConcurrentModification() throws Exception
     {
@@ -0,0 +1,88 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+// }}}
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void testBuckets()
+    {
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKETS - 1; bucket++) {
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.lowerBound(bucket)));
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.upperBound(bucket)));
+            assertEquals(LatencyHistogram.upperBound(bucket) + 1, LatencyHistogram.lowerBound(bucket + 1));
+        }
+        assertEquals(0, LatencyHistogram.bucket(-1));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+
+        // the buckets are at most 12.5% wide
+        final int bucket = LatencyHistogram.bucket(1000000);
+        assertTrue(LatencyHistogram.upperBound(bucket) - LatencyHistogram.lowerBound(bucket) < 1000000 / 8);
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        final long[] counts = new long[LatencyHistogram.BUCKETS];
+        long sum = 0;
+        for (long value = 1; value <= 1000; value++) {
+            counts[LatencyHistogram.bucket(value * 1000)]++;
+            sum += value * 1000;
+        }
+        final LatencyHistogram histogram = new LatencyHistogram(counts, sum, 1000000);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getMean(), 0.001);
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(1000000, histogram.getPercentile(100));
+        assertEquals(500000, histogram.getPercentile(50), 500000 / 8);
+        assertEquals(990000, histogram.getPercentile(99), 990000 / 8);
+        assertTrue(histogram.getPercentile(50) >= 500000);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram(new long[LatencyHistogram.BUCKETS], 0, 0);
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testPercentileOutOfRange()
+    {
+        new LatencyHistogram(new long[LatencyHistogram.BUCKETS], 0, 0).getPercentile(101);
+    }
+}
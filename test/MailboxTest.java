@@ -0,0 +1,248 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+// }}}
+
+public class MailboxTest
+{
+    DefaultNotificationCenter center;
+
+    List<Object> received;
+    CountDownLatch started;
+    CountDownLatch release;
+
+    Observer slowObserver = new Observer() {
+        @Override
+        public void receivedNotification(Notification notification)
+        {
+            final Object value = notification.getUserInfo().get("value");
+            received.add("" + notification.getUserInfo().get("count") + (value != null ? value : ""));
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception
+    {
+        center = new DefaultNotificationCenter();
+        received = new CopyOnWriteArrayList<Object>();
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+    }
+
+    /**
+     * Registers the slow observer with the given mailbox, and posts the first
+     * notification, which blocks the observer.
+     */
+    Subscription addSlowObserver(OverflowPolicy overflowPolicy, String coalescingKey) throws Exception
+    {
+        final Subscription subscription = center.addObserver(slowObserver, "Test", null, ObserverOptions.builder()
+                .mailboxCapacity(4).overflowPolicy(overflowPolicy).coalescingKey(coalescingKey).build());
+
+        center.postNotification("Test", this, "count", 0);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        return subscription;
+    }
+
+    void awaitDeliveries(Mailbox mailbox, int count) throws Exception
+    {
+        release.countDown();
+        for (int i = 0; i < 250 && (received.size() < count || mailbox.getSize() > 0); i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testDropOldest() throws Exception
+    {
+        final Mailbox mailbox = center.getMailbox(addSlowObserver(OverflowPolicy.DROP_OLDEST, null));
+
+        for (int i = 1; i <= 6; i++) {
+            center.postNotification("Test", this, "count", i);
+        }
+
+        assertEquals(4, mailbox.getSize());
+        assertEquals(2, mailbox.getDroppedCount());
+
+        awaitDeliveries(mailbox, 5);
+
+        assertEquals("[0, 3, 4, 5, 6]", received.toString());
+    }
+
+    @Test
+    public void testDropNewest() throws Exception
+    {
+        final Mailbox mailbox = center.getMailbox(addSlowObserver(OverflowPolicy.DROP_NEWEST, null));
+
+        for (int i = 1; i <= 6; i++) {
+            center.postNotification("Test", this, "count", i);
+        }
+
+        assertEquals(2, mailbox.getDroppedCount());
+
+        awaitDeliveries(mailbox, 5);
+
+        assertEquals("[0, 1, 2, 3, 4]", received.toString());
+    }
+
+    @Test
+    public void testFail() throws Exception
+    {
+        final Mailbox mailbox = center.getMailbox(addSlowObserver(OverflowPolicy.FAIL, null));
+
+        for (int i = 1; i <= 4; i++) {
+            center.postNotification("Test", this, "count", i);
+        }
+        try {
+            center.postNotification("Test", this, "count", 5);
+            fail("full mailbox accepted a notification");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+
+        assertEquals(1, mailbox.getDroppedCount());
+
+        awaitDeliveries(mailbox, 5);
+
+        assertEquals("[0, 1, 2, 3, 4]", received.toString());
+    }
+
+    @Test
+    public void testCoalesce() throws Exception
+    {
+        final Mailbox mailbox = center.getMailbox(addSlowObserver(OverflowPolicy.COALESCE, "count"));
+
+        center.postNotification("Test", this, "count", 1, "value", "a");
+        center.postNotification("Test", this, "count", 2);
+        center.postNotification("Test", this, "count", 1, "value", "b");
+
+        assertEquals(2, mailbox.getSize());
+        assertEquals(1, mailbox.getDroppedCount());
+
+        awaitDeliveries(mailbox, 3);
+
+        assertEquals("[0, 1b, 2]", received.toString());
+    }
+
+    @Test
+    public void testBlock() throws Exception
+    {
+        final Mailbox mailbox = center.getMailbox(addSlowObserver(OverflowPolicy.BLOCK, null));
+
+        final Thread poster = new Thread() {
+            @Override
+            public void run()
+            {
+                for (int i = 1; i <= 6; i++) {
+                    center.postNotification("Test", this, "count", i);
+                }
+            }
+        };
+        poster.start();
+
+        for (int i = 0; i < 250 && poster.getState() != Thread.State.WAITING; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(Thread.State.WAITING, poster.getState());
+        assertEquals(4, mailbox.getSize());
+
+        awaitDeliveries(mailbox, 7);
+        poster.join(5000);
+
+        assertEquals("[0, 1, 2, 3, 4, 5, 6]", received.toString());
+        assertEquals(0, mailbox.getDroppedCount());
+    }
+
+    @Test
+    public void testRejectedDeliveryIsRetried() throws Exception
+    {
+        final AtomicInteger rejections = new AtomicInteger(1);
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command)
+            {
+                if (rejections.getAndDecrement() > 0) {
+                    throw new RejectedExecutionException("Shut down");
+                }
+                command.run();
+            }
+        };
+        final Subscription subscription = center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received.add(notification.getUserInfo().get("count"));
+            }
+        }, "Test", null, ObserverOptions.builder().mailboxCapacity(4).executor(executor).build());
+
+        try {
+            center.postNotification("Test", this, "count", 1);
+            fail("Delivery not rejected");
+        } catch (final RejectedExecutionException ex) {
+            // expected
+        }
+        assertEquals(1, center.getMailbox(subscription).getSize());
+
+        // the mailbox is not stuck, the next post delivers both
+        center.postNotification("Test", this, "count", 2);
+        assertEquals("[1, 2]", received.toString());
+        assertEquals(0, center.getMailbox(subscription).getSize());
+    }
+
+    @Test
+    public void testNoMailbox() throws Exception
+    {
+        assertNull(center.getMailbox(center.addObserver(slowObserver, "Other")));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testNegativeCapacity() throws Exception
+    {
+        ObserverOptions.builder().mailboxCapacity(-1).build();
+    }
+
+}
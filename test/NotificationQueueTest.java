@@ -0,0 +1,245 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+// }}}
+
+public class NotificationQueueTest
+{
+    DefaultNotificationCenter center;
+    NotificationQueue queue;
+
+    List<Notification> received;
+
+    Observer observer = new Observer() {
+        @Override
+        public void receivedNotification(Notification notification)
+        {
+            received.add(notification);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception
+    {
+        center = new DefaultNotificationCenter();
+        queue = new NotificationQueue(center);
+        received = new CopyOnWriteArrayList<Notification>();
+        center.addObserver(observer);
+    }
+
+    @Test
+    public void testPostNow()
+    {
+        final Notification notification = new DefaultNotification("Test", this, null);
+
+        queue.enqueueNotification(new DefaultNotification("Test", this, null), PostingStyle.END_OF_BATCH);
+        queue.enqueueNotification(notification, PostingStyle.NOW);
+
+        assertEquals(1, received.size());
+        assertSame(notification, received.get(0));
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void testCoalesceOnNameAndSender()
+    {
+        final Notification latest = new DefaultNotification("Test", this, null);
+
+        queue.enqueueNotification(new DefaultNotification("Test", this, null), PostingStyle.END_OF_BATCH);
+        queue.enqueueNotification(new DefaultNotification("Other", this, null), PostingStyle.END_OF_BATCH);
+        queue.enqueueNotification(new DefaultNotification("Test", null, null), PostingStyle.END_OF_BATCH);
+        queue.enqueueNotification(latest, PostingStyle.END_OF_BATCH);
+
+        assertEquals(0, received.size());
+        assertEquals(3, queue.getPendingCount());
+
+        queue.flush();
+
+        assertEquals(3, received.size());
+        assertSame(latest, received.get(0));
+        assertEquals("Other", received.get(1).getName());
+        assertNull(received.get(2).getObject());
+    }
+
+    @Test
+    public void testCoalesceOnName()
+    {
+        queue.enqueueNotification(new DefaultNotification("Test", this, null), PostingStyle.END_OF_BATCH,
+                Coalescing.ON_NAME);
+        queue.enqueueNotification(new DefaultNotification("Test", null, null), PostingStyle.END_OF_BATCH,
+                Coalescing.ON_NAME);
+
+        queue.flush();
+
+        assertEquals(1, received.size());
+        assertNull(received.get(0).getObject());
+    }
+
+    @Test
+    public void testCoalesceOnSender()
+    {
+        queue.enqueueNotification(new DefaultNotification("Test", this, null), PostingStyle.END_OF_BATCH,
+                Coalescing.ON_SENDER);
+        queue.enqueueNotification(new DefaultNotification("Other", this, null), PostingStyle.END_OF_BATCH,
+                Coalescing.ON_SENDER);
+
+        queue.flush();
+
+        assertEquals(1, received.size());
+        assertEquals("Other", received.get(0).getName());
+    }
+
+    @Test
+    public void testNoCoalescing()
+    {
+        queue.enqueueNotification(new DefaultNotification("Test", this, null), PostingStyle.END_OF_BATCH,
+                Coalescing.NONE);
+        queue.enqueueNotification(new DefaultNotification("Test", this, null), PostingStyle.END_OF_BATCH,
+                Coalescing.NONE);
+
+        queue.flush();
+
+        assertEquals(2, received.size());
+    }
+
+    @Test
+    public void testDequeueNotifications()
+    {
+        queue.enqueueNotification(new DefaultNotification("Test", this, null), PostingStyle.END_OF_BATCH);
+        queue.enqueueNotification(new DefaultNotification("Other", this, null), PostingStyle.END_OF_BATCH);
+
+        assertEquals(1, queue.dequeueNotifications(new DefaultNotification("Test", this, null),
+                Coalescing.ON_NAME_AND_SENDER));
+
+        queue.flush();
+
+        assertEquals(1, received.size());
+        assertEquals("Other", received.get(0).getName());
+    }
+
+    @Test
+    public void testPostAfterWindow() throws Exception
+    {
+        queue.setTimeWindow(200, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 100; i++) {
+            queue.enqueueNotification(new DefaultNotification("Test", this, null), PostingStyle.AFTER_WINDOW);
+        }
+
+        assertEquals(0, received.size());
+
+        for (int i = 0; i < 100 && received.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, received.size());
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void testPostWhenIdle() throws Exception
+    {
+        queue.enqueueNotification(new DefaultNotification("Test", this, null), PostingStyle.WHEN_IDLE);
+        queue.enqueueNotification(new DefaultNotification("Batch", this, null), PostingStyle.END_OF_BATCH);
+
+        for (int i = 0; i < 100 && received.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, received.size());
+        assertEquals("Test", received.get(0).getName());
+        assertEquals(1, queue.getPendingCount());
+    }
+
+    @Test
+    public void testCoalescePooledNotifications()
+    {
+        final NotificationName test = NotificationName.of("Test");
+        final PooledNotification first = PooledNotification.obtain(test, this).put("count", 1);
+        queue.enqueueNotification(first, PostingStyle.END_OF_BATCH);
+
+        // the enqueued notification is copied, so the instance is free again
+        final PooledNotification second = PooledNotification.obtain(test, this).put("count", 2);
+        assertSame(first, second);
+        queue.enqueueNotification(second, PostingStyle.END_OF_BATCH);
+
+        queue.flush();
+
+        assertEquals(1, received.size());
+        assertEquals(2, received.get(0).getUserInfo().get("count"));
+        assertEquals(this, received.get(0).getObject());
+        assertSame(first, PooledNotification.obtain(test));
+        first.recycle();
+    }
+
+    @Test
+    public void testObserverErrorDoesNotStopPosting() throws Exception
+    {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            queue = new NotificationQueue(center, scheduler);
+            center.addObserver(new Observer() {
+                @Override
+                public void receivedNotification(Notification notification)
+                {
+                    throw new AssertionError("Observer failed");
+                }
+            }, "Fail");
+
+            queue.enqueueNotification(new DefaultNotification("Fail", this, null), PostingStyle.WHEN_IDLE);
+            queue.enqueueNotification(new DefaultNotification("Test", this, null), PostingStyle.WHEN_IDLE);
+            for (int i = 0; i < 100 && received.size() < 2; i++) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(2, received.size());
+            assertEquals("Test", received.get(1).getName());
+            assertEquals(0, queue.getPendingCount());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testNegativeTimeWindow()
+    {
+        queue.setTimeWindow(-1, TimeUnit.MILLISECONDS);
+    }
+
+}
@@ -0,0 +1,273 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// }}}
+
+public class ObserverWatchdogTest
+{
+    DefaultNotificationCenter center;
+
+    List<ObserverWatchdog.StallReport> reports;
+    CountDownLatch reported;
+
+    ObserverWatchdog.StallListener listener = new ObserverWatchdog.StallListener() {
+        @Override
+        public void observerStalled(ObserverWatchdog.StallReport report)
+        {
+            reports.add(report);
+            reported.countDown();
+        }
+    };
+
+    // blocks until the watchdog reported it
+    Observer stallingObserver = new Observer() {
+        @Override
+        public void receivedNotification(Notification notification)
+        {
+            awaitReport();
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception
+    {
+        center = new DefaultNotificationCenter();
+        reports = new CopyOnWriteArrayList<ObserverWatchdog.StallReport>();
+        reported = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        center.setWatchdog(null);
+    }
+
+    void awaitReport()
+    {
+        try {
+            reported.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testReportsStalledObserver() throws Exception
+    {
+        center.setWatchdog(new ObserverWatchdog(50, TimeUnit.MILLISECONDS, listener));
+        center.addObserver(stallingObserver, "Test");
+
+        center.postNotification("Test");
+
+        assertEquals(1, reports.size());
+        final ObserverWatchdog.StallReport report = reports.get(0);
+        assertSame(stallingObserver, report.getObserver());
+        assertEquals(stallingObserver.getClass(), report.getObserverClass());
+        assertEquals("Test", report.getNotificationName());
+        assertSame(Thread.currentThread(), report.getThread());
+        assertTrue(report.getElapsed(TimeUnit.MILLISECONDS) >= 50);
+        assertEquals(1, report.getStallCount());
+        assertFalse(report.isQuarantined());
+
+        boolean inObserver = false;
+        for (final StackTraceElement element : report.getStackTrace()) {
+            inObserver |= element.getClassName().equals(stallingObserver.getClass().getName());
+        }
+        assertTrue(inObserver);
+        assertTrue(report.toString().contains("stalled"));
+    }
+
+    @Test
+    public void testReportsObserverStalledByQueuedPost() throws Exception
+    {
+        center.setWatchdog(new ObserverWatchdog(50, TimeUnit.MILLISECONDS, listener));
+        center.addObserver(stallingObserver, "Test");
+
+        // neither the queue nor the watchdog share a thread with the observer
+        new NotificationQueue(center).enqueueNotification(new DefaultNotification("Test", null, null),
+                                                          PostingStyle.WHEN_IDLE);
+
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        assertEquals("Test", reports.get(0).getNotificationName());
+        assertNotSame(Thread.currentThread(), reports.get(0).getThread());
+        assertFalse(reports.get(0).getThread().getName().contains("scheduler"));
+    }
+
+    @Test
+    public void testReportsCallOfRecycledNotification() throws Exception
+    {
+        final ObserverWatchdog watchdog = new ObserverWatchdog(1, TimeUnit.MILLISECONDS, listener);
+        final DefaultNotificationCenter.ObserverReference reference =
+                (DefaultNotificationCenter.ObserverReference) center.addObserver(stallingObserver, "Test");
+
+        // the call is still tracked when its pooled notification is recycled
+        final PooledNotification notification = PooledNotification.obtain(NotificationName.of("Test"));
+        final ObserverWatchdog.CallStack stack = watchdog.enter(reference, notification);
+        notification.recycle();
+        Thread.sleep(10);
+        watchdog.check();
+        watchdog.exit(stack);
+
+        assertEquals(1, reports.size());
+        assertEquals("Test", reports.get(0).getNotificationName());
+    }
+
+    @Test
+    public void testReportsAfterRestart() throws Exception
+    {
+        final ObserverWatchdog watchdog = new ObserverWatchdog(50, TimeUnit.MILLISECONDS, listener);
+        center.setWatchdog(watchdog);
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+            }
+        }, "Fast");
+        center.postNotification("Fast");
+
+        // stopping releases the stack of this thread, restarting tracks it again
+        center.setWatchdog(null);
+        center.setWatchdog(watchdog);
+        center.addObserver(stallingObserver, "Test");
+        center.postNotification("Test");
+
+        assertEquals(1, reports.size());
+        assertEquals("Test", reports.get(0).getNotificationName());
+    }
+
+    @Test
+    public void testFastObserversAreNotReported() throws Exception
+    {
+        center.setWatchdog(new ObserverWatchdog(50, TimeUnit.MILLISECONDS, listener));
+        final Observer observer = new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+            }
+        };
+        center.addObserver(observer, "Test");
+        center.addWeakObserver(observer, "Test", null,
+                ObserverOptions.builder().deliveryMode(DeliveryMode.VIRTUAL_THREAD).build());
+
+        for (int i = 0; i < 1000; i++) {
+            center.postNotification("Test");
+        }
+        Thread.sleep(150);
+
+        assertTrue(reports.isEmpty());
+    }
+
+    @Test
+    public void testReportsWeakObserver() throws Exception
+    {
+        center.setWatchdog(new ObserverWatchdog(50, TimeUnit.MILLISECONDS, listener));
+        center.addWeakObserver(stallingObserver, "Test");
+
+        center.postNotification("Test");
+
+        assertEquals(1, reports.size());
+        assertSame(stallingObserver, reports.get(0).getObserver());
+    }
+
+    @Test
+    public void testReportsInnerObserver() throws Exception
+    {
+        center.setWatchdog(new ObserverWatchdog(50, TimeUnit.MILLISECONDS, listener));
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                center.postNotification("Inner");
+            }
+        }, "Outer");
+        center.addObserver(stallingObserver, "Inner");
+
+        center.postNotification("Outer");
+        Thread.sleep(100);
+
+        assertEquals(1, reports.size());
+        assertEquals("Inner", reports.get(0).getNotificationName());
+    }
+
+    @Test
+    public void testQuarantine() throws Exception
+    {
+        center.setWatchdog(new ObserverWatchdog(50, TimeUnit.MILLISECONDS, listener, 1));
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> received = new CopyOnWriteArrayList<String>();
+        final CountDownLatch done = new CountDownLatch(3);
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                final Object count = notification.getUserInfo().get("count");
+                received.add(String.valueOf(count));
+                if (count.equals(0)) {
+                    awaitReport();
+                } else if (count.equals(1)) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                done.countDown();
+            }
+        }, "Test");
+
+        center.postNotification("Test", null, "count", 0);
+        assertTrue(reports.get(0).isQuarantined());
+
+        // the posting thread is not blocked anymore, the order is kept
+        center.postNotification("Test", null, "count", 1);
+        center.postNotification("Test", null, "count", 2);
+        assertEquals(2, done.getCount());
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("[0, 1, 2]", received.toString());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThresholdMustBePositive() throws Exception
+    {
+        new ObserverWatchdog(0, TimeUnit.MILLISECONDS, listener);
+    }
+}
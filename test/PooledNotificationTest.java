@@ -0,0 +1,163 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+// }}}
+
+public class PooledNotificationTest
+{
+    static final NotificationName TEST = NotificationName.of("Test");
+
+    DefaultNotificationCenter center;
+
+    Notification received;
+    Object receivedValue;
+
+    Observer observer = new Observer() {
+        @Override
+        public void receivedNotification(Notification notification)
+        {
+            received = notification;
+            receivedValue = notification.getUserInfo().get("Foo");
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception
+    {
+        center = new DefaultNotificationCenter();
+        received = null;
+        receivedValue = null;
+    }
+
+    @Test
+    public void testGetUserInfo()
+    {
+        final PooledNotification notification = PooledNotification.obtain(TEST, this).put("Foo", "Bar")
+                .put("Blubber", "Schnitzel").put("Foo", "Baz");
+        final Map<String, Object> userInfo = notification.getUserInfo();
+
+        assertEquals("Test", notification.getName());
+        assertEquals(this, notification.getObject());
+        assertEquals(2, userInfo.size());
+        assertEquals("Baz", userInfo.get("Foo"));
+        assertEquals("Schnitzel", userInfo.get("Blubber"));
+        assertNull(userInfo.get("Bar"));
+        assertEquals(2, userInfo.entrySet().size());
+
+        center.postNotification(notification);
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testUserInfoUnmodifieable()
+    {
+        final PooledNotification notification = PooledNotification.obtain(TEST);
+        try {
+            notification.getUserInfo().put("Blubber", "Schnitzel");
+        } finally {
+            center.postNotification(notification);
+        }
+    }
+
+    @Test
+    public void testPostRecyclesNotification()
+    {
+        center.addObserver(observer, "Test");
+
+        final PooledNotification notification = PooledNotification.obtain(TEST, this).put("Foo", "Bar");
+        center.postNotification(notification);
+
+        assertSame(notification, received);
+        assertEquals("Bar", receivedValue);
+
+        // recycled: the references are released and the instance is reused
+        assertNull(notification.getObject());
+        assertEquals(0, notification.getUserInfo().size());
+        assertSame(notification, PooledNotification.obtain(TEST));
+
+        center.postNotification(notification);
+    }
+
+    @Test
+    public void testObtainWhileDispatching()
+    {
+        final PooledNotification[] nested = new PooledNotification[1];
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                nested[0] = PooledNotification.obtain(TEST);
+                center.postNotification(nested[0]);
+            }
+        }, "Other");
+
+        final PooledNotification notification = PooledNotification.obtain(NotificationName.of("Other"));
+        center.postNotification(notification);
+
+        assertNotSame(notification, nested[0]);
+    }
+
+    @Test
+    public void testPostDoesNotAllocate()
+    {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        center.addObserver(observer, "Test");
+        center.addObserver(observer, "Test", this);
+        final Object value = new Object();
+
+        for (int i = 0; i < 20000; i++) {
+            center.postNotification(PooledNotification.obtain(TEST, this).put("Foo", value));
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = allocationBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10000; i++) {
+            center.postNotification(PooledNotification.obtain(TEST, this).put("Foo", value));
+        }
+        final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertSame(value, receivedValue);
+        // tolerate the allocations of the measurement itself
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+}
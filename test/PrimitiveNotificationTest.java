@@ -0,0 +1,132 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+// }}}
+
+public class PrimitiveNotificationTest
+{
+    static final NotificationName QUOTE = NotificationName.of("Quote");
+
+    PrimitiveNotification notification;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        notification = new PrimitiveNotification(QUOTE, this).putDouble("price", 12.5).putLong("quantity", 300L)
+                .putInt("exchange", 7);
+    }
+
+    @Test
+    public void testGetters()
+    {
+        assertEquals("Quote", notification.getName());
+        assertEquals(this, notification.getObject());
+        assertEquals(12.5, notification.getDouble("price"), 0);
+        assertEquals(300L, notification.getLong("quantity"));
+        assertEquals(7, notification.getInt("exchange"));
+    }
+
+    @Test
+    public void testConversions()
+    {
+        assertEquals(12L, notification.getLong("price"));
+        assertEquals(12, notification.getInt("price"));
+        assertEquals(300.0, notification.getDouble("quantity"), 0);
+        assertEquals(7L, notification.getLong("exchange"));
+    }
+
+    @Test
+    public void testPutReplacesValue()
+    {
+        notification.putLong("price", 13L);
+
+        assertEquals(13L, notification.getLong("price"));
+        assertEquals(3, notification.getUserInfo().size());
+    }
+
+    @Test
+    public void testManyValues()
+    {
+        for (int i = 0; i < 100; i++) {
+            notification.putInt("Key " + i, i);
+        }
+
+        assertEquals(99, notification.getInt("Key 99"));
+        assertEquals(12.5, notification.getDouble("price"), 0);
+        assertEquals(103, notification.getUserInfo().size());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testMissingKey()
+    {
+        assertFalse(notification.containsKey("volume"));
+
+        notification.getLong("volume");
+    }
+
+    @Test
+    public void testGetUserInfo()
+    {
+        final Map<String, Object> userInfo = notification.getUserInfo();
+
+        assertEquals(3, userInfo.size());
+        assertEquals(Double.valueOf(12.5), userInfo.get("price"));
+        assertEquals(Long.valueOf(300L), userInfo.get("quantity"));
+        assertEquals(Integer.valueOf(7), userInfo.get("exchange"));
+        assertSame(userInfo, notification.getUserInfo());
+    }
+
+    @Test
+    public void testPostNotification()
+    {
+        final DefaultNotificationCenter center = new DefaultNotificationCenter();
+        final double[] price = new double[1];
+        final Object[] quantity = new Object[1];
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification received)
+            {
+                price[0] = ((PrimitiveNotification) received).getDouble("price");
+                quantity[0] = received.getUserInfo().get("quantity");
+            }
+        }, "Quote");
+
+        center.postNotification(notification);
+
+        assertEquals(12.5, price[0], 0);
+        assertEquals(Long.valueOf(300L), quantity[0]);
+    }
+
+}
@@ -0,0 +1,335 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+// }}}
+
+public class RingBufferNotificationCenterTest
+{
+
+    RingBufferNotificationCenter center;
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (center != null) {
+            center.shutdown();
+            assertTrue(center.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBufferSizeMustBePowerOfTwo()
+    {
+        new RingBufferNotificationCenter(1000, 1, WaitStrategy.BLOCKING);
+    }
+
+    @Test
+    public void testPostNotification() throws Exception
+    {
+        center = new RingBufferNotificationCenter(2, 1, WaitStrategy.BLOCKING);
+
+        final Object that = new Object();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final Notification[] received = new Notification[2];
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received[0] = notification;
+                latch.countDown();
+            }
+        }, "Some event", that);
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received[1] = notification;
+                latch.countDown();
+            }
+        }, "Some other event");
+
+        center.postNotification("Some event", this);
+        center.postNotification("Some event", that, "foo", "bar");
+        center.postNotification(new DefaultNotification("Some other event", null, null));
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        // the notifications can be kept, reusing their slots does not change them
+        for (int i = 0; i < 10; i++) {
+            center.postNotification("Unobserved event", this, "foo", i);
+        }
+        center.shutdown();
+        assertTrue(center.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals("Some event", received[0].getName());
+        assertSame(that, received[0].getObject());
+        assertEquals("bar", received[0].getUserInfo().get("foo"));
+        assertEquals("Some other event", received[1].getName());
+    }
+
+    @Test
+    public void testPostNotificationName() throws Exception
+    {
+        center = new RingBufferNotificationCenter();
+
+        final NotificationName someEvent = NotificationName.of("Some event");
+        final CountDownLatch latch = new CountDownLatch(3);
+        final StringBuilder received = new StringBuilder();
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received.append(notification.getName()).append(':')
+                        .append(notification.getUserInfo().get("count")).append(' ');
+                latch.countDown();
+            }
+        }, "Some event");
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                latch.countDown();
+            }
+        }, null);
+
+        center.postNotification(someEvent, this, DefaultNotificationCenter.createUserInfo("count", 1));
+        center.postNotification(NotificationName.of("Some other event"));
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals("Some event:1 ", received.toString());
+    }
+
+    @Test
+    public void testDeliversInOrderWithSingleConsumer() throws Exception
+    {
+        center = new RingBufferNotificationCenter(8, 1, WaitStrategy.YIELDING);
+
+        final int count = 10000;
+        final int[] next = new int[]{0};
+        final boolean[] ordered = new boolean[]{true};
+        final CountDownLatch latch = new CountDownLatch(count);
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                if (!notification.getName().equals("Event " + next[0]++)) {
+                    ordered[0] = false;
+                }
+                latch.countDown();
+            }
+        }, null);
+
+        for (int i = 0; i < count; i++) {
+            center.postNotification("Event " + i);
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(ordered[0]);
+    }
+
+    @Test
+    public void testConcurrentPostersAndConsumers() throws Exception
+    {
+        for (final WaitStrategy waitStrategy : WaitStrategy.values()) {
+            final RingBufferNotificationCenter center = new RingBufferNotificationCenter(64, 3, waitStrategy);
+
+            final int posters = 4;
+            final int postsPerPoster = 5000;
+            final AtomicInteger received = new AtomicInteger();
+            center.addObserver(new Observer() {
+                @Override
+                public void receivedNotification(Notification notification)
+                {
+                    received.incrementAndGet();
+                }
+            }, "Event");
+
+            final Thread[] threads = new Thread[posters];
+            for (int i = 0; i < posters; i++) {
+                threads[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        for (int j = 0; j < postsPerPoster; j++) {
+                            center.postNotification("Event");
+                        }
+                    }
+                });
+                threads[i].start();
+            }
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+
+            center.shutdown();
+            assertTrue(center.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(waitStrategy.name(), posters * postsPerPoster, received.get());
+        }
+    }
+
+    @Test
+    public void testShutdownWhilePosting() throws Exception
+    {
+        for (int round = 0; round < 20; round++) {
+            for (final WaitStrategy waitStrategy : WaitStrategy.values()) {
+                final RingBufferNotificationCenter center = new RingBufferNotificationCenter(8, 2, waitStrategy);
+
+                final AtomicInteger received = new AtomicInteger();
+                center.addObserver(new Observer() {
+                    @Override
+                    public void receivedNotification(Notification notification)
+                    {
+                        received.incrementAndGet();
+                    }
+                }, "Event");
+
+                // every post returning normally must be delivered
+                final AtomicInteger posted = new AtomicInteger();
+                final Thread[] threads = new Thread[3];
+                for (int i = 0; i < threads.length; i++) {
+                    threads[i] = new Thread(new Runnable() {
+                        @Override
+                        public void run()
+                        {
+                            try {
+                                while (true) {
+                                    center.postNotification("Event");
+                                    posted.incrementAndGet();
+                                }
+                            } catch (final IllegalStateException ex) {
+                                // shut down
+                            }
+                        }
+                    });
+                    threads[i].start();
+                }
+
+                Thread.sleep(1);
+                center.shutdown();
+                for (final Thread thread : threads) {
+                    thread.join(10000);
+                    assertFalse(thread.isAlive());
+                }
+                assertTrue(center.awaitTermination(10, TimeUnit.SECONDS));
+                assertEquals(waitStrategy.name(), posted.get(), received.get());
+            }
+        }
+    }
+
+    @Test
+    public void testObserverFailureDoesNotStopConsumer() throws Exception
+    {
+        center = new RingBufferNotificationCenter(4, 1, WaitStrategy.BLOCKING);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                if (notification.getName().equals("Failing event")) {
+                    throw new RuntimeException("Failing observer");
+                }
+                if (notification.getName().equals("Erroneous event")) {
+                    throw new AssertionError("Erroneous observer");
+                }
+                latch.countDown();
+            }
+        }, null);
+
+        final Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        final AtomicInteger failures = new AtomicInteger();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e)
+            {
+                failures.incrementAndGet();
+            }
+        });
+        try {
+            center.postNotification("Failing event");
+            center.postNotification("Erroneous event");
+            center.postNotification("Some event");
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(2, failures.get());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+
+    @Test
+    public void testPendingCount() throws Exception
+    {
+        center = new RingBufferNotificationCenter(8, 1, WaitStrategy.BLOCKING);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch received = new CountDownLatch(3);
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.countDown();
+            }
+        }, "Event");
+        assertEquals(0, center.getPendingCount());
+
+        for (int i = 0; i < 3; i++) {
+            center.postNotification("Event");
+        }
+        // the first one may be taken already
+        assertTrue(center.getPendingCount() >= 2);
+
+        release.countDown();
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        assertEquals(0, center.getPendingCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPostAfterShutdown() throws Exception
+    {
+        center = new RingBufferNotificationCenter();
+        center.shutdown();
+
+        center.postNotification("Some event");
+    }
+
+}
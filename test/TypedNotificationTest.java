@@ -0,0 +1,131 @@
+// {{{ copyright
+/**
+ * The MIT License (MIT)
+ * Copyright (c) 2016 Pascal Bihler
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+// }}}
+
+// {{{ imports
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+// }}}
+
+public class TypedNotificationTest
+{
+    DefaultNotificationCenter center;
+
+    List<Integer> payloads;
+
+    TypedObserver<Integer> typedObserver = new TypedObserver<Integer>(Integer.class) {
+        @Override
+        public void receivedPayload(Notification notification, Integer payload)
+        {
+            payloads.add(payload);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception
+    {
+        center = new DefaultNotificationCenter();
+        payloads = new ArrayList<Integer>();
+    }
+
+    @Test
+    public void testGetUserInfo()
+    {
+        final TypedNotification<Integer> notification = new TypedNotification<Integer>("Test", this, 42);
+        final Map<String, Object> userInfo = notification.getUserInfo();
+
+        assertEquals(Integer.valueOf(42), notification.getPayload());
+        assertEquals(1, userInfo.size());
+        assertEquals(42, userInfo.get(TypedNotification.PAYLOAD_KEY));
+        assertSame(userInfo, notification.getUserInfo());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testPayloadNotNull()
+    {
+        new TypedNotification<Object>("Test", this, null);
+    }
+
+    @Test
+    public void testPostPayload()
+    {
+        center.addObserver(typedObserver, "Test");
+
+        center.postPayload("Test", this, 1);
+        center.postPayload(NotificationName.of("Test"), this, 2);
+
+        assertEquals(2, payloads.size());
+        assertEquals(Integer.valueOf(1), payloads.get(0));
+        assertEquals(Integer.valueOf(2), payloads.get(1));
+    }
+
+    @Test
+    public void testPayloadOfOtherTypeIsIgnored()
+    {
+        center.addObserver(typedObserver);
+
+        center.postPayload("Test", this, "Foo");
+        center.postNotification("Test", this);
+
+        assertEquals(0, payloads.size());
+    }
+
+    @Test
+    public void testPayloadFromUserInfo()
+    {
+        center.addObserver(typedObserver, "Test");
+
+        center.postNotification("Test", this, TypedNotification.PAYLOAD_KEY, 3);
+
+        assertEquals(1, payloads.size());
+        assertEquals(Integer.valueOf(3), payloads.get(0));
+    }
+
+    @Test
+    public void testObserverReceivesPayloadInUserInfo()
+    {
+        final Object[] received = new Object[1];
+        center.addObserver(new Observer() {
+            @Override
+            public void receivedNotification(Notification notification)
+            {
+                received[0] = notification.getUserInfo().get(TypedNotification.PAYLOAD_KEY);
+            }
+        }, "Test");
+
+        center.postPayload("Test", this, 4);
+
+        assertEquals(4, received[0]);
+    }
+
+}